@@ -8,6 +8,9 @@ package cmu.routing.constants;
 public class RoutingFileConstants
 {
     public static final String FEASIBLE_STRINGS = "num_strings";
+    public static final String LONG_STRINGS = "num_long_strings";
+    public static final String LONG_STRING_INDEX = "long_string_index";
+    public static final String TRUE_STRING = "true_string";
     public static final String DAILY_FLIGHT_LEGS = "num_flights";
     public static final String GROUND_ARCS = "num_ground_arcs";
     public static final String MAINTENANCE_LOC = "maint_loc";
@@ -23,6 +26,7 @@ public class RoutingFileConstants
     public static final String COVER_HAT_VALUES = "cover_hat_values";
     public static final String HAT_VALUE_STRINGS = "hat_values_strings";
     public static final String STRINGS_SORTED_AS_HATS = "strings_sorted_as_hats";
+    public static final String MAX_PROP_DELAY_STRINGS = "100percentile_prop_delay_strings";
     public static final String ALPHA_PERCENTILE_PROPDELAY_STRINGS = "alpha_percentile_prop_delay_strings";
     public static final String EXT_VAL_PROP_DELAY_STRINGS = "ext_val_prop_delay_strings";
     public static final String AIRCRAFTS = "num_aircrafts";
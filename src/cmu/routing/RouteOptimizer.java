@@ -11,6 +11,10 @@ import java.util.Scanner;
 
 import cmu.routing.constants.RoutingFileConstants;
 import cmu.routing.constants.ModelConstants.Model;
+import cmu.routing.model.CplexLoader;
+import cmu.routing.model.DataManifest;
+import cmu.routing.model.ModelLoad;
+import cmu.routing.model.RoutingData;
 import cmu.routing.model.RoutingEquations;
 import cmu.routing.model.ccp.CCPRoutingData;
 import cmu.routing.model.ccp.CCPRoutingEquations;
@@ -28,6 +32,8 @@ import cmu.routing.model.ev.EVRoutingEquations;
 //import cmu.routing.model.ev.EVEquations;
 import cmu.routing.model.nominal.NominalRoutingData;
 import cmu.routing.model.nominal.NominalRoutingEquations;
+import cmu.routing.util.MemoryReport;
+import cmu.routing.util.Storage;
 import ilog.concert.IloException;
 import ilog.concert.IloNumExpr;
 import ilog.concert.IloNumVar;
@@ -40,8 +46,8 @@ import ilog.cplex.IloCplex;
  */
 public class RouteOptimizer
 {
-    public int [][] stringsConsidered = new int [1][878207];
-    public int [][] stringsInLP = new int [1][878207];
+    public int [][] stringsConsidered = null;
+    public int [][] stringsInLP = null;
     public int stop = 0;
     public int variablesConsidered = 0;
     public double [] optimalValue = new double [200];
@@ -50,11 +56,43 @@ public class RouteOptimizer
     {
         RouteOptimizer opt = new RouteOptimizer();
 
-        if (args.length != 2)
+        if (args.length < 2 || args.length > 5)
         {
             opt.printUsageString();
             System.exit(0);
         }
+
+        /* The input matrices may be kept outside the heap */
+        Storage storage = null;
+        File directory = null;
+        for (int i = 2; i < args.length; i++)
+        {
+            /* The rows may be loaded as one matrix */
+            ModelLoad load = parseLoad(args[i]);
+            if (load != null)
+            {
+                CplexLoader.setLoad(load);
+            } else if (storage == null)
+            {
+                try
+                {
+                    storage = Storage.valueOf(args[i].toUpperCase());
+                } catch (IllegalArgumentException e)
+                {
+                    opt.printUsageString();
+                    System.exit(0);
+                }
+            } else if (directory == null)
+            {
+                directory = new File(args[i]);
+            } else
+            {
+                opt.printUsageString();
+                System.exit(0);
+            }
+        }
+        if (storage != null)
+            DataManifest.setStorage(storage, directory);
         try
         {
                 opt.optimize(args[0], args[1]);
@@ -65,6 +103,17 @@ public class RouteOptimizer
         }
     }
 
+    /* The load named by the argument, or null when it names no load */
+    private static ModelLoad parseLoad(String arg)
+    {
+        for (ModelLoad load : ModelLoad.values())
+        {
+            if (load.name().equalsIgnoreCase(arg))
+                return load;
+        }
+        return null;
+    }
+
     /**
      * 
      * Optimizes the routing plan based on the model and passed data. It
@@ -109,9 +158,12 @@ public class RouteOptimizer
             {
             case NOMINAL:
                 NominalRoutingData nomData = new NominalRoutingData(baseInputFile1, baseInputFile2, baseInputFile3, incDataFile, hatDataFile, mechanism);
+                printMemory(nomData);
                 eqns = new NominalRoutingEquations(nomData);
                 eqns.setObjectiveFunction(cplex, nomData);
+                printModelSize(cplex, "setObjectiveFunction");
                 eqns.setConstraints(cplex, nomData);
+                printModelSize(cplex, "setConstraints");
                 if (solveFlag)
                 {
                     //cplex.solve();
@@ -120,11 +172,12 @@ public class RouteOptimizer
                         System.out.println("The optimal solution value is : "
                                 + cplex.getObjValue());
                         
-                        double[] xval = cplex.getValues(eqns.getX());
+                        /* The solution is written for the original strings */
+                        double[] xval = nomData.toOriginalStrings(cplex.getValues(eqns.getX()));
                         BufferedWriter out = new BufferedWriter(new FileWriter("soln_nominal_Gp5.txt",true));
                         System.out.println("IloNumExpr constraint6 = null;");
                         int num_str = 0;
-                        for (int i = 0; i < 878207; i++) {
+                        for (int i = 0; i < xval.length; i++) {
                             if (1 - xval[i] < 0.0001){
                                 num_str++;
                                 System.out.println("constraint6 = cplex.sum(constraint6, cplex.prod(1, x[" + String.valueOf(i) + "]));");
@@ -142,9 +195,12 @@ public class RouteOptimizer
                 break;
             case CCP:
             	CCPRoutingData ccpData = new CCPRoutingData(baseInputFile1, baseInputFile2, baseInputFile3, incDataFile, hatDataFile, mechanism);
+                printMemory(ccpData);
                 eqns = new CCPRoutingEquations(ccpData);
                 eqns.setObjectiveFunction(cplex, ccpData);
+                printModelSize(cplex, "setObjectiveFunction");
                 eqns.setConstraints(cplex, ccpData);
+                printModelSize(cplex, "setConstraints");
                 if (solveFlag)
                 {
                     //cplex.solve();
@@ -157,7 +213,7 @@ public class RouteOptimizer
                         BufferedWriter out = new BufferedWriter(new FileWriter("soln_ccp_Gp5_15min_0.52.txt",true));
                         System.out.println("IloNumExpr constraint6 = null;");
                         int num_str = 0;
-                        for (int i = 0; i < 878207; i++) {
+                        for (int i = 0; i < xval.length; i++) {
                             if (1 - xval[i] < 0.0001){
                                 num_str++;
                                 System.out.println("constraint6 = cplex.sum(constraint6, cplex.prod(1, x[" + String.valueOf(i) + "]));");
@@ -175,9 +231,12 @@ public class RouteOptimizer
                 break;
             case ECCP:
             	ECCPRoutingData eccpData = new ECCPRoutingData(baseInputFile1, baseInputFile2, baseInputFile3, incDataFile, hatDataFile, mechanism);
+                printMemory(eccpData);
                 eqns = new ECCPRoutingEquations(eccpData);
                 eqns.setObjectiveFunction(cplex, eccpData);
+                printModelSize(cplex, "setObjectiveFunction");
                 eqns.setConstraints(cplex, eccpData);
+                printModelSize(cplex, "setConstraints");
                 if (solveFlag)
                 {
                     //cplex.solve();
@@ -190,7 +249,7 @@ public class RouteOptimizer
                         BufferedWriter out = new BufferedWriter(new FileWriter("soln_eccp_Gp1_15min.txt",true));
                         System.out.println("IloNumExpr constraint6 = null;");
                         int num_str = 0;
-                        for (int i = 0; i < 878207; i++) {
+                        for (int i = 0; i < xval.length; i++) {
                             if (1 - xval[i] < 0.0001){
                                 num_str++;
                                 System.out.println("constraint6 = cplex.sum(constraint6, cplex.prod(1, x[" + String.valueOf(i) + "]));");
@@ -209,9 +268,12 @@ public class RouteOptimizer
                         		
             case DELTA_EV:
                 Delta_EVData Delta_EVData = new Delta_EVData(baseInputFile1, baseInputFile2, baseInputFile3, incDataFile, hatDataFile, mechanism);
+                printMemory(Delta_EVData);
                 eqns = new Delta_EVEquations(Delta_EVData);
                 eqns.setObjectiveFunction(cplex, Delta_EVData);
+                printModelSize(cplex, "setObjectiveFunction");
                 eqns.setConstraints(cplex, Delta_EVData);
+                printModelSize(cplex, "setConstraints");
                 if (solveFlag)
                 {
                     //cplex.solve();
@@ -224,7 +286,7 @@ public class RouteOptimizer
                         BufferedWriter out = new BufferedWriter(new FileWriter("soln_delta_ev_trial_15min.txt",true));
                         System.out.println("IloNumExpr constraint6 = null;");
                         int num_str = 0;
-                        for (int i = 0; i < 878207; i++) {
+                        for (int i = 0; i < xval.length; i++) {
                             if (1 - xval[i] < 0.0001){
                                 num_str++;
                                 System.out.println("constraint6 = cplex.sum(constraint6, cplex.prod(1, x[" + String.valueOf(i) + "]));");
@@ -243,9 +305,12 @@ public class RouteOptimizer
                 
             case EV:
                 EVRoutingData EVData = new EVRoutingData(baseInputFile1, baseInputFile2, baseInputFile3, incDataFile, hatDataFile, mechanism);
+                printMemory(EVData);
                 eqns = new EVRoutingEquations(EVData);
                 eqns.setObjectiveFunction(cplex, EVData);
+                printModelSize(cplex, "setObjectiveFunction");
                 eqns.setConstraints(cplex, EVData);
+                printModelSize(cplex, "setConstraints");
                 if (solveFlag)
                 {
                     //cplex.solve();
@@ -258,7 +323,7 @@ public class RouteOptimizer
                         BufferedWriter out = new BufferedWriter(new FileWriter("soln_ev_Gp5_3_15min.txt",true));
                         System.out.println("IloNumExpr constraint6 = null;");
                         int num_str = 0;
-                        for (int i = 0; i < 878207; i++) {
+                        for (int i = 0; i < xval.length; i++) {
                             if (1 - xval[i] < 0.0001){
                                 num_str++;
                                 System.out.println("constraint6 = cplex.sum(constraint6, cplex.prod(1, x[" + String.valueOf(i) + "]));");
@@ -277,8 +342,12 @@ public class RouteOptimizer
                 
             case DELTA_OBJ_EV:
             	Delta_OBJ_EVData Delta_OBJ_EVData = new Delta_OBJ_EVData(baseInputFile1, baseInputFile2, baseInputFile3, incDataFile, hatDataFile, mechanism);
+                printMemory(Delta_OBJ_EVData);
                 eqns = new Delta_OBJ_EVEquations(Delta_OBJ_EVData);
+                stringsConsidered = new int [1][Delta_OBJ_EVData.getStrings()];
+                stringsInLP = new int [1][Delta_OBJ_EVData.getStrings()];
                 eqns.setConstraints(cplex, Delta_OBJ_EVData, stringsConsidered);
+                printModelSize(cplex, "setConstraints");
                 if (solveFlag)
                 {
                     //cplex.solve();
@@ -291,7 +360,7 @@ public class RouteOptimizer
                         BufferedWriter out = new BufferedWriter(new FileWriter("soln_delta_obj_ev_Gp5_15min.txt",true));
                         System.out.println("IloNumExpr constraint6 = null;");
                         int num_str = 0;
-                        for (int i = 0; i < 878207; i++) {
+                        for (int i = 0; i < xval.length; i++) {
                             if (1 - xval[i] < 0.0001){
                                 num_str++;
                                 System.out.println("constraint6 = cplex.sum(constraint6, cplex.prod(1, x[" + String.valueOf(i) + "]));");
@@ -325,12 +394,33 @@ public class RouteOptimizer
                 private void printUsageString()
                 {
                     System.out
-                            .println("Usage: RouteOptimizer <modelName> <mechanism>"
+                            .println("Usage: RouteOptimizer <modelName> <mechanism> [storage [directory]] [load]"
                                     + " \n\twhere\n\t\tmodelName: Name of the model. [nominal/ccp/bs/delta/delta_alt"
                                     + "/eccp/bs_mpd/ccp_mpd/delta_mpd/eccp_mpd/ccp_ma]"
                                     + "\n\t\tmechanism: Mechanism Number"
+                                    + "\n\t\tstorage: Where the input matrices are kept. [heap/direct/mapped]"
+                                    + "\n\t\tdirectory: Directory of the mapped storage files"
+                                    + "\n\t\tload: How the constraint rows are loaded. [expression/matrix]"
                                     + "\n\n\tEx. RouteOptimizer nominal 01");
                 }
+
+                /* Prints the arrays held by the data and the use of the heap */
+                private void printMemory(RoutingData data)
+                {
+                    MemoryReport report = new MemoryReport();
+                    data.reportMemory(report);
+                    report.print("populateData");
+                }
+
+                /* Prints the size of the model built so far and the use of the heap */
+                private void printModelSize(IloCplex cplex, String phase)
+                        throws IloException
+                {
+                    System.out.println("Model after " + phase + ": "
+                            + cplex.getNrows() + " rows, " + cplex.getNcols()
+                            + " columns, " + cplex.getNNZs() + " nonzeros");
+                    MemoryReport.printHeap(phase);
+                }
                 
                 public static void quicksort(double[] reducedCost, int[] index) {
                     quicksort(reducedCost, index, 0, index.length - 1);
@@ -0,0 +1,705 @@
+package cmu.routing.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import cmu.routing.constants.RoutingFileConstants;
+import cmu.routing.util.ArrayUtil;
+import cmu.routing.util.BinaryCacheReader;
+import cmu.routing.util.BinaryCacheWriter;
+import cmu.routing.util.ConcurrentLoader;
+import cmu.routing.util.DataContents;
+import cmu.routing.util.FileUtil;
+import cmu.routing.util.MemoryReport;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
+
+/**
+ * 
+ * This class holds the data that is shared by all the routing optimization
+ * models: the merged strings with their cover, count and maintenance arrays,
+ * the ground arcs and the propagation delay. It is loaded only once for a set
+ * of input files, and the same object is then used by every model that is
+ * run in the process. The arrays must not be changed by the models.
+ * 
+ */
+public class BaseRoutingData
+{
+    /* Keys of the input files used by the base data */
+    private static final DataManifest MANIFEST = new DataManifest(
+            new String[] { RoutingFileConstants.PROPOGATION_DELAY },
+            new String[0]);
+
+    /* Size of the fleet when none of the input files declares it */
+    private static final int DEFAULT_AIRCRAFTS = 61;
+
+    private static final Map<String, BaseRoutingData> loaded = new HashMap<String, BaseRoutingData>();
+
+    private int strings1;
+    private int strings2;
+    private int long_strings1;
+    private int long_strings2;
+    private int strings;
+    private int flightLegs;
+    private int groundArcs;
+    private int maintLoc;
+    private int airCrafts;
+    private int[] long_string_index1 = null;
+    private int[] long_string_index_true1 = null;
+    private int[] long_string_index2 = null;
+    private int[] long_string_index_true2 = null;
+    private int[] true_string1 = null;
+    private int[] true_string2 = null;
+    private int[] columnMap1 = null;
+    private int[] columnMap2 = null;
+    private SparseMatrix cover = null;
+    private SparseMatrix cover2 = null;
+    private SparseMatrix cover1 = null;
+    private NumberMatrix propDelay = null;
+    private NumberMatrix countStrings = null;
+    private NumberMatrix countGround = null;
+    private NumberMatrix flightMaintStringsIn = null;
+    private NumberMatrix flightMaintStringsOut = null;
+    private NumberMatrix flightMaintGroundIn = null;
+    private NumberMatrix flightMaintGroundOut = null;
+    private StringIncidence stringIncidence = null;
+
+    private BaseRoutingData()
+    {
+    }
+
+    /**
+     * 
+     * Gives the base data of the input files. The files are only read the
+     * first time the data is asked for, later calls return the same object.
+     * 
+     * @param baseInputFile1
+     *            The base input file holding the first part of the strings
+     * @param baseInputFile2
+     *            The base input file holding the second part of the strings
+     * @param baseInputFile3
+     *            The base input file holding the ground arcs
+     * @param incDataFile
+     *            The optional input data file to override the data of the
+     *            second base input file
+     * @param mechanism
+     *            The mechanism number
+     * @return The base data
+     * @throws IOException
+     *             Thrown when any error while finding or parsing the input
+     *             files
+     */
+    public static BaseRoutingData load(String baseInputFile1,
+            String baseInputFile2, String baseInputFile3, String incDataFile,
+            String mechanism) throws IOException
+    {
+        return load(baseInputFile1, baseInputFile2, baseInputFile3,
+                incDataFile, mechanism, Collections.<String> emptySet(), null);
+    }
+
+    /**
+     * 
+     * Same as {@link #load(String, String, String, String, String)}, but
+     * also gives the values of more keys of the second string file. When the
+     * base data is parsed, the values are kept while the file is read for
+     * the strings. Otherwise only these keys are read from the file.
+     * 
+     * @param baseInputFile1
+     *            The base input file holding the first part of the strings
+     * @param baseInputFile2
+     *            The base input file holding the second part of the strings
+     * @param baseInputFile3
+     *            The base input file holding the ground arcs
+     * @param incDataFile
+     *            The optional input data file to override the data of the
+     *            second base input file
+     * @param mechanism
+     *            The mechanism number
+     * @param extraKeys
+     *            The keys of the second string file needed by the model
+     * @param extraValues
+     *            The contents the values of the keys are stored in
+     * @return The base data
+     * @throws IOException
+     *             Thrown when any error while finding or parsing the input
+     *             files
+     */
+    public static BaseRoutingData load(String baseInputFile1,
+            String baseInputFile2, String baseInputFile3, String incDataFile,
+            String mechanism, Set<String> extraKeys, DataContents extraValues)
+            throws IOException
+    {
+        BaseRoutingData data = load(baseInputFile1, baseInputFile2,
+                baseInputFile3, incDataFile, mechanism, getSources(
+                        baseInputFile1, baseInputFile2, baseInputFile3,
+                        incDataFile, mechanism), extraKeys, extraValues);
+        for (String key : extraKeys)
+        {
+            if (!extraValues.containsKey(key))
+            {
+                /* The base data was loaded before, the keys are read on their own */
+                DataContents contents = FileUtil.readInputFile(
+                        baseInputFile2, incDataFile, mechanism, extraKeys);
+                copyValues(contents, extraKeys, extraValues);
+                break;
+            }
+        }
+        return data;
+    }
+
+    private static synchronized BaseRoutingData load(String baseInputFile1,
+            String baseInputFile2, String baseInputFile3, String incDataFile,
+            String mechanism, String[] sources, Set<String> extraKeys,
+            DataContents extraValues) throws IOException
+    {
+        String key = Arrays.toString(sources);
+        BaseRoutingData data = loaded.get(key);
+        if (data == null)
+        {
+            data = new BaseRoutingData();
+            data.populateData(baseInputFile1, baseInputFile2, baseInputFile3,
+                    incDataFile, mechanism, sources, extraKeys, extraValues);
+            loaded.put(key, data);
+        }
+        return data;
+    }
+
+    private static void copyValues(DataContents contents, Set<String> keys,
+            DataContents target)
+    {
+        for (String key : keys)
+        {
+            if (contents.containsKey(key))
+                target.put(key, contents.getValue(key));
+        }
+    }
+
+    /**
+     * 
+     * Gives the input files the base data is read from, followed by the
+     * files of a model. A model that adds its own data to the base data
+     * depends on all of these files.
+     * 
+     * @param baseInputFile1
+     *            The base input file holding the first part of the strings
+     * @param baseInputFile2
+     *            The base input file holding the second part of the strings
+     * @param baseInputFile3
+     *            The base input file holding the ground arcs
+     * @param incDataFile
+     *            The optional input data file to override the data of the
+     *            second base input file
+     * @param mechanism
+     *            The mechanism number
+     * @param modelFiles
+     *            The input files read by the model itself
+     * @return The input files
+     */
+    public static String[] getSources(String baseInputFile1,
+            String baseInputFile2, String baseInputFile3, String incDataFile,
+            String mechanism, String... modelFiles)
+    {
+        String[] sources = { baseInputFile1, baseInputFile2, baseInputFile3,
+                incDataFile,
+                RoutingFileConstants.COMMON_INPUT_FILE_PREFIX + mechanism
+                        + ".dat" };
+        sources = Arrays.copyOf(sources, sources.length + modelFiles.length);
+        System.arraycopy(modelFiles, 0, sources, sources.length
+                - modelFiles.length, modelFiles.length);
+        return sources;
+    }
+
+    private void populateData(String baseInputFile1, String baseInputFile2,
+            String baseInputFile3, String incDataFile, String mechanism,
+            String[] sources, Set<String> extraKeys, DataContents extraValues)
+            throws IOException
+    {
+        File cacheFile = FileUtil.getCacheFile(baseInputFile1, "base", mechanism);
+        if (readCache(cacheFile, sources))
+            return;
+
+        ConcurrentLoader loader = new ConcurrentLoader();
+        try
+        {
+            loadData(loader, baseInputFile1, baseInputFile2, baseInputFile3,
+                    incDataFile, mechanism, extraKeys, extraValues);
+        } finally
+        {
+            loader.shutdown();
+        }
+
+        writeCache(cacheFile, sources);
+    }
+
+    private void loadData(ConcurrentLoader loader, String baseInputFile1,
+            String baseInputFile2, String baseInputFile3, String incDataFile,
+            String mechanism, Set<String> extraKeys, DataContents extraValues)
+            throws IOException
+    {
+        /* The keys of the model are read together with the strings */
+        Set<String> stringKeys2 = MANIFEST.getStringKeys2();
+        if (!extraKeys.isEmpty())
+        {
+            stringKeys2 = new HashSet<String>(stringKeys2);
+            stringKeys2.addAll(extraKeys);
+        }
+        Future<DataContents> groundFile = loader.readBaseFile(baseInputFile3,
+                MANIFEST.getGroundKeys());
+        Future<DataContents> stringFile1 = loader.readBaseFile(baseInputFile1,
+                MANIFEST.getStringKeys1());
+        Future<DataContents> stringFile2 = loader.readInputFile(baseInputFile2,
+                incDataFile, mechanism, stringKeys2);
+
+        final DataContents groundContents = ConcurrentLoader.get(groundFile);
+        groundArcs = Integer.parseInt(groundContents
+                .getProperty(RoutingFileConstants.GROUND_ARCS));
+        maintLoc = Integer.parseInt(groundContents
+                .getProperty(RoutingFileConstants.MAINTENANCE_LOC));
+
+        final DataContents contents1 = ConcurrentLoader.get(stringFile1);
+        strings1 = Integer.parseInt(contents1
+                .getProperty(RoutingFileConstants.FEASIBLE_STRINGS));
+        System.out.println("strings1: " + strings1);
+        long_strings1 = Integer.parseInt(contents1
+                .getProperty(RoutingFileConstants.LONG_STRINGS));
+        System.out.println("long_strings1: " + long_strings1);
+        flightLegs = Integer.parseInt(contents1
+                .getProperty(RoutingFileConstants.DAILY_FLIGHT_LEGS));
+        System.out.println("flightLegs: " + flightLegs);
+
+        final DataContents contents = ConcurrentLoader.get(stringFile2);
+        copyValues(contents, extraKeys, extraValues);
+        strings2 = Integer.parseInt(contents
+                .getProperty(RoutingFileConstants.FEASIBLE_STRINGS));
+        System.out.println("strings2: " + strings2);
+        long_strings2 = Integer.parseInt(contents
+                .getProperty(RoutingFileConstants.LONG_STRINGS));
+        System.out.println("long_strings2: " + long_strings2);
+        strings = long_strings1 + long_strings2;
+        airCrafts = readAirCrafts(contents, contents1, groundContents);
+
+        /* The strings of both files are decoded straight into the merged arrays */
+        countStrings = DataManifest.createMatrix(
+                RoutingFileConstants.COUNT_STRINGS, 1, strings);
+        flightMaintStringsIn = DataManifest.createMatrix(
+                RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN, maintLoc, strings);
+        flightMaintStringsOut = DataManifest.createMatrix(
+                RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT, maintLoc, strings);
+
+        /* The files are decoded concurrently and merged once all are done */
+        Future<?> groundTask = loader.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                populateGroundData(groundContents);
+            }
+        });
+        Future<?> stringTask1 = loader.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                populateStringData1(contents1);
+            }
+        });
+        populateStringData2(contents);
+        ConcurrentLoader.get(groundTask);
+        ConcurrentLoader.get(stringTask1);
+        mergeStringData();
+
+        propDelay = DataManifest.createMatrix(
+                RoutingFileConstants.PROPOGATION_DELAY, 1, strings);
+        ArrayUtil.populateArray(propDelay,
+                contents.getValue(RoutingFileConstants.PROPOGATION_DELAY));
+    }
+
+    /*
+     * The fleet size is taken from the first file declaring it, the layered
+     * string file of the mechanism first.
+     */
+    private static int readAirCrafts(DataContents... contents)
+    {
+        for (DataContents content : contents)
+        {
+            String value = content.getProperty(RoutingFileConstants.AIRCRAFTS);
+            if (value != null)
+                return Integer.parseInt(value);
+        }
+        System.out.println(RoutingFileConstants.AIRCRAFTS
+                + " is not given, " + DEFAULT_AIRCRAFTS + " aircrafts are used");
+        return DEFAULT_AIRCRAFTS;
+    }
+
+    private void populateGroundData(DataContents groundContents)
+    {
+        flightMaintGroundOut = DataManifest.createMatrix(
+                RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_OUT, maintLoc, groundArcs);
+        ArrayUtil
+                .populateArray(
+                        flightMaintGroundOut,
+                        groundContents.getValue(RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_OUT));
+        flightMaintGroundIn = DataManifest.createMatrix(
+                RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_IN, maintLoc, groundArcs);
+        ArrayUtil
+                .populateArray(
+                        flightMaintGroundIn,
+                        groundContents.getValue(RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_IN));
+        countGround = DataManifest.createMatrix(
+                RoutingFileConstants.COUNT_GROUND, 1, groundArcs);
+        ArrayUtil.populateArray(countGround,
+                groundContents.getValue(RoutingFileConstants.COUNT_GROUND));
+    }
+
+    private void populateStringData1(DataContents contents1)
+    {
+        /* The index covers all generated strings, not only the feasible ones */
+        long_string_index1 = ArrayUtil.readArray(
+                contents1.getValue(RoutingFileConstants.LONG_STRING_INDEX));
+        true_string1 = new int[long_string_index1.length];
+        ArrayUtil.populateArray(true_string1,
+                contents1.getValue(RoutingFileConstants.TRUE_STRING));
+        long_string_index_true1 = new int[strings1];
+        int m=0;
+        for (int i = 0; i < long_string_index1.length; i++){
+            if (true_string1[i] == 1){
+                long_string_index_true1[m] = long_string_index1[i];
+                m++;
+            }
+        }
+        System.out.println("Final index is: " + String.valueOf(m-1));
+        long_string_index1 = null;
+        true_string1 = null;
+
+        /* Column of every string of the file among the merged strings */
+        columnMap1 = new int[strings1];
+        for (int j = 0; j < strings1; j++){
+            columnMap1[j] = long_string_index_true1[j] != 0 ? long_string_index_true1[j] - 1 : -1;
+        }
+        long_string_index_true1 = null;
+
+        cover1 = ArrayUtil.readMatrix(flightLegs, strings1,
+                contents1.getValue(RoutingFileConstants.COVER));
+
+        ArrayUtil.populateArray(countStrings, columnMap1,
+                contents1.getValue(RoutingFileConstants.COUNT_STRINGS));
+
+        ArrayUtil.populateArray(flightMaintStringsIn, columnMap1,
+                contents1.getValue(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN));
+
+        ArrayUtil.populateArray(flightMaintStringsOut, columnMap1,
+                contents1.getValue(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT));
+    }
+
+    private void populateStringData2(DataContents contents2)
+    {
+        /* The index covers all generated strings, not only the feasible ones */
+        long_string_index2 = ArrayUtil.readArray(
+                contents2.getValue(RoutingFileConstants.LONG_STRING_INDEX));
+        true_string2 = new int[long_string_index2.length];
+        ArrayUtil.populateArray(true_string2,
+                contents2.getValue(RoutingFileConstants.TRUE_STRING));
+        long_string_index_true2 = new int[strings2];
+        int m=0;
+        for (int i = 0; i < long_string_index2.length; i++){
+            if (true_string2[i] == 1){
+                long_string_index_true2[m] = long_string_index2[i];
+                m++;
+            }
+        }
+        System.out.println("Final index is: " + String.valueOf(m-1));
+        long_string_index2 = null;
+        true_string2 = null;
+
+        /* Column of every string of the file among the merged strings */
+        columnMap2 = new int[strings2];
+        for (int j = 0; j < strings2; j++){
+            columnMap2[j] = long_string_index_true2[j] != 0 ? long_string_index_true2[j] + long_strings1 - 1 : -1;
+        }
+        long_string_index_true2 = null;
+
+        cover2 = ArrayUtil.readMatrix(flightLegs, strings2,
+                contents2.getValue(RoutingFileConstants.COVER));
+
+        ArrayUtil.populateArray(countStrings, columnMap2,
+                contents2.getValue(RoutingFileConstants.COUNT_STRINGS));
+
+        ArrayUtil.populateArray(flightMaintStringsIn, columnMap2,
+                contents2.getValue(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN));
+
+        ArrayUtil.populateArray(flightMaintStringsOut, columnMap2,
+                contents2.getValue(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT));
+    }
+
+    private void mergeStringData()
+    {
+        cover = SparseMatrix.mergeColumns(strings, new SparseMatrix[] {
+                cover1, cover2 }, new int[][] { columnMap1, columnMap2 });
+        cover1 = null;
+        cover2 = null;
+        columnMap1 = null;
+        columnMap2 = null;
+    }
+
+    private boolean readCache(File cacheFile, String[] sources)
+    {
+        return BinaryCacheReader.read(cacheFile, sources,
+                new BinaryCacheReader.BlockReader()
+                {
+                    @Override
+                    public boolean readBlocks(BinaryCacheReader cache)
+                            throws IOException
+                    {
+                        strings = cache.getStrings();
+                        flightLegs = cache.getFlightLegs();
+                        groundArcs = cache.getGroundArcs();
+                        maintLoc = cache.getMaintLocations();
+                        int[] fleet = cache.readIntArray(RoutingFileConstants.AIRCRAFTS);
+                        cover = cache.readMatrix(RoutingFileConstants.COVER);
+                        propDelay = DataManifest.readMatrix(cache, RoutingFileConstants.PROPOGATION_DELAY);
+                        countStrings = DataManifest.readMatrix(cache, RoutingFileConstants.COUNT_STRINGS);
+                        countGround = DataManifest.readMatrix(cache, RoutingFileConstants.COUNT_GROUND);
+                        flightMaintStringsIn = DataManifest.readMatrix(cache, RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN);
+                        flightMaintStringsOut = DataManifest.readMatrix(cache, RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT);
+                        flightMaintGroundIn = DataManifest.readMatrix(cache, RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_IN);
+                        flightMaintGroundOut = DataManifest.readMatrix(cache, RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_OUT);
+                        if (fleet == null
+                                || cover == null
+                                || propDelay == null
+                                || countStrings == null
+                                || countGround == null
+                                || flightMaintStringsIn == null
+                                || flightMaintStringsOut == null
+                                || flightMaintGroundIn == null
+                                || flightMaintGroundOut == null)
+                            return false;
+                        airCrafts = fleet[0];
+                        return true;
+                    }
+                });
+    }
+
+    private void writeCache(File cacheFile, String[] sources)
+    {
+        writeCache(cacheFile, sources, new BinaryCacheWriter.BlockWriter()
+        {
+            @Override
+            public void writeBlocks(BinaryCacheWriter cache)
+                    throws IOException
+            {
+                cache.write(RoutingFileConstants.AIRCRAFTS, new int[] { airCrafts });
+                cache.write(RoutingFileConstants.COVER, cover);
+                cache.write(RoutingFileConstants.PROPOGATION_DELAY, propDelay);
+                cache.write(RoutingFileConstants.COUNT_STRINGS, countStrings);
+                cache.write(RoutingFileConstants.COUNT_GROUND, countGround);
+                cache.write(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN, flightMaintStringsIn);
+                cache.write(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT, flightMaintStringsOut);
+                cache.write(RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_IN, flightMaintGroundIn);
+                cache.write(RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_OUT, flightMaintGroundOut);
+            }
+        });
+    }
+
+    /**
+     * 
+     * Writes the data of a model to its cache file, with the dimensions of
+     * the base data in the header
+     * 
+     * @param cacheFile
+     *            The cache file of the model
+     * @param sources
+     *            The input files the data of the model was parsed from
+     * @param writer
+     *            Writes the blocks of the data of the model
+     */
+    public void writeCache(File cacheFile, String[] sources,
+            BinaryCacheWriter.BlockWriter writer)
+    {
+        BinaryCacheWriter.write(cacheFile, sources, strings, flightLegs,
+                groundArcs, maintLoc, writer);
+    }
+
+    /**
+     * 
+     * Reads the values of a model that are kept in the cover pattern from
+     * its cache file
+     * 
+     * @param cacheFile
+     *            The cache file of the model
+     * @param sources
+     *            The input files the data of the model is parsed from
+     * @param key
+     *            The key of the values
+     * @return The values in the cover pattern, or null if the cache file does
+     *         not hold them
+     */
+    public SparseMatrix readCachedValues(File cacheFile, String[] sources,
+            final String key)
+    {
+        final SparseMatrix[] values = new SparseMatrix[1];
+        boolean read = BinaryCacheReader.read(cacheFile, sources,
+                new BinaryCacheReader.BlockReader()
+                {
+                    @Override
+                    public boolean readBlocks(BinaryCacheReader cache)
+                            throws IOException
+                    {
+                        values[0] = cache.readMatrixValues(key, cover);
+                        return values[0] != null;
+                    }
+                });
+        return read ? values[0] : null;
+    }
+
+    /**
+     * 
+     * Writes the values of a model that are kept in the cover pattern to its
+     * cache file
+     * 
+     * @param cacheFile
+     *            The cache file of the model
+     * @param sources
+     *            The input files the data of the model was parsed from
+     * @param key
+     *            The key of the values
+     * @param values
+     *            The values in the cover pattern
+     */
+    public void writeCachedValues(File cacheFile, String[] sources,
+            final String key, final SparseMatrix values)
+    {
+        writeCache(cacheFile, sources, new BinaryCacheWriter.BlockWriter()
+        {
+            @Override
+            public void writeBlocks(BinaryCacheWriter cache)
+                    throws IOException
+            {
+                cache.writeValues(key, values);
+            }
+        });
+    }
+
+    /**
+     * 
+     * Adds the arrays of the base data to the report
+     * 
+     * @param report
+     *            The report the arrays are added to
+     */
+    public synchronized void reportMemory(MemoryReport report)
+    {
+        report.add("cover", cover);
+        report.add("propDelay", propDelay);
+        report.add("countStrings", countStrings);
+        report.add("countGround", countGround);
+        report.add("flightMaintStringsIn", flightMaintStringsIn);
+        report.add("flightMaintStringsOut", flightMaintStringsOut);
+        report.add("flightMaintGroundIn", flightMaintGroundIn);
+        report.add("flightMaintGroundOut", flightMaintGroundOut);
+        if (stringIncidence != null)
+            stringIncidence.reportMemory(report, "stringIncidence");
+    }
+
+    public int getStrings()
+    {
+        return strings;
+    }
+
+    public int getGroundArcs()
+    {
+        return groundArcs;
+    }
+
+    public int getMaintLocations()
+    {
+        return maintLoc;
+    }
+
+    public int getFlightLegs()
+    {
+        return flightLegs;
+    }
+
+    public int getAirCrafts()
+    {
+        return airCrafts;
+    }
+
+    public NumberMatrix getPropDelay()
+    {
+        return propDelay;
+    }
+
+    public SparseMatrix getCover()
+    {
+        return cover;
+    }
+
+    /**
+     * 
+     * Gives the strings covering a flight leg. The rows of the cover are kept
+     * with the columns of their nonzero values, so the strings are found
+     * without scanning the strings that do not cover the flight leg.
+     * 
+     * @param flightLeg
+     *            The flight leg
+     * @return The merged indexes of the strings covering the flight leg,
+     *         ascending
+     */
+    public int[] getStringsCovering(int flightLeg)
+    {
+        return cover.getColumns(flightLeg);
+    }
+
+    /**
+     * 
+     * Gives the flight legs and maintenance events of every string. The index
+     * is built the first time it is asked for and then shared by all models.
+     * 
+     * @return The incidences of every string
+     */
+    public synchronized StringIncidence getStringIncidence()
+    {
+        if (stringIncidence == null)
+            stringIncidence = new StringIncidence(cover,
+                    flightMaintStringsIn, flightMaintStringsOut);
+        return stringIncidence;
+    }
+
+    public NumberMatrix getFlightMaintStringsIn()
+    {
+        return flightMaintStringsIn;
+    }
+
+    public NumberMatrix getFlightMaintGroundIn()
+    {
+        return flightMaintGroundIn;
+    }
+
+    public NumberMatrix getFlightMaintStringsOut()
+    {
+        return flightMaintStringsOut;
+    }
+
+    public NumberMatrix getFlightMaintGroundOut()
+    {
+        return flightMaintGroundOut;
+    }
+
+    public NumberMatrix getCountStrings()
+    {
+        return countStrings;
+    }
+
+    public NumberMatrix getCountGround()
+    {
+        return countGround;
+    }
+}
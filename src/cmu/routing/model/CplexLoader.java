@@ -0,0 +1,238 @@
+package cmu.routing.model;
+
+import java.util.Arrays;
+
+import ilog.concert.IloException;
+import ilog.concert.IloLPMatrix;
+import ilog.concert.IloLinearNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.concert.IloNumVarType;
+import ilog.concert.IloRange;
+import ilog.cplex.IloCplex;
+
+/**
+ *
+ * Hands a {@link SparseModel} to CPLEX. The variables of the model are
+ * created in bulk in the CPLEX model the first time the loader is used with
+ * it, and the rows are loaded in bulk, every call loading the rows added to
+ * the sparse model since the call before. The loaded rows are released from
+ * the sparse model, so only the rows of one constraint are held besides the
+ * CPLEX model, and a loader is used with a single CPLEX model. The rows of
+ * one constraint are loaded as
+ *
+ * <pre>
+ * for (int i = 0; i &lt; rows; i++)
+ * {
+ *     model.add(...);
+ *     model.addRange(lb, ub);
+ * }
+ * IloRange[] ranges = loader.loadRows(cplex);
+ * </pre>
+ *
+ */
+public class CplexLoader
+{
+    private static volatile ModelLoad load = ModelLoad.EXPRESSION;
+
+    /* Number of terms copied into the row arrays of a matrix at once */
+    private static final int MATRIX_BATCH_SIZE = 1 << 20;
+
+    private final SparseModel model;
+
+    /* The CPLEX model the loader is bound to, with the variable of every column */
+    private IloCplex cplex = null;
+    private IloNumVar[] variables = null;
+
+    /* The matrix the rows are loaded into, created for the first load */
+    private IloLPMatrix matrix = null;
+
+    /**
+     *
+     * @param model
+     *            The model handed to CPLEX
+     */
+    public CplexLoader(SparseModel model)
+    {
+        this.model = model;
+    }
+
+    /**
+     *
+     * Sets how the rows loaded after this call are handed to CPLEX
+     *
+     * @param load
+     *            The way the rows are loaded
+     */
+    public static void setLoad(ModelLoad load)
+    {
+        CplexLoader.load = load;
+    }
+
+    /**
+     *
+     * Binds the loader to a CPLEX model, creating the variables of the sparse
+     * model in it
+     *
+     * @param cplex
+     *            The CPLEX model
+     * @throws IloException
+     *             Thrown when any error creating the variables
+     * @throws IllegalStateException
+     *             Thrown when the loader is bound to another CPLEX model
+     */
+    private void bind(IloCplex cplex) throws IloException
+    {
+        if (this.cplex == cplex)
+            return;
+        if (this.cplex != null)
+            throw new IllegalStateException(
+                    "The rows were loaded into another CPLEX model");
+        /* All the variables are created in one call into the native library */
+        int columns = model.getColumns();
+        double[] lowerBounds = new double[columns];
+        double[] upperBounds = new double[columns];
+        IloNumVarType[] types = new IloNumVarType[columns];
+        for (int j = 0; j < columns; j++)
+        {
+            lowerBounds[j] = model.getLowerBound(j);
+            upperBounds[j] = model.getUpperBound(j);
+            types[j] = model.getType(j) == VariableType.INT ? IloNumVarType.Int
+                    : IloNumVarType.Float;
+        }
+        variables = cplex.numVarArray(columns, lowerBounds, upperBounds, types);
+        this.cplex = cplex;
+    }
+
+    /**
+     *
+     * Adds the objective of the sparse model to the CPLEX model
+     *
+     * @param cplex
+     *            The CPLEX model
+     * @throws IloException
+     *             Thrown when any error adding the objective
+     */
+    public void loadObjective(IloCplex cplex) throws IloException
+    {
+        bind(cplex);
+        IloLinearNumExpr expr = cplex.linearNumExpr();
+        int columns = model.getColumns();
+        for (int j = 0; j < columns; j++)
+        {
+            double coefficient = model.getObjective(j);
+            if (coefficient != 0)
+                expr.addTerm(coefficient, variables[j]);
+        }
+        if (model.isMaximize())
+            cplex.addMaximize(expr);
+        else
+            cplex.addMinimize(expr);
+    }
+
+    /**
+     *
+     * Adds the rows of the sparse model not loaded yet to the CPLEX model,
+     * and releases them from the sparse model
+     *
+     * @param cplex
+     *            The CPLEX model
+     * @return The range of every row loaded, in the order the rows were added
+     * @throws IloException
+     *             Thrown when any error adding the rows
+     */
+    public IloRange[] loadRows(IloCplex cplex) throws IloException
+    {
+        bind(cplex);
+        int rows = model.getRows();
+        IloRange[] ranges = new IloRange[rows];
+        if (load == ModelLoad.MATRIX)
+        {
+            if (matrix == null)
+            {
+                matrix = cplex.addLPMatrix();
+                matrix.addCols(variables);
+            }
+            /* The rows are copied in batches to bound the extra arrays */
+            int first = 0;
+            while (first < rows)
+            {
+                int last = first + 1;
+                while (last < rows
+                        && model.rowEnd(last) - model.rowStart(first) <= MATRIX_BATCH_SIZE)
+                    last++;
+                loadMatrixRows(first, last, ranges);
+                first = last;
+            }
+        } else
+        {
+            IloNumVar[] vars = new IloNumVar[0];
+            double[] coefficients = new double[0];
+            for (int row = 0; row < rows; row++)
+            {
+                int start = model.rowStart(row);
+                int n = model.rowEnd(row) - start;
+                if (vars.length < n)
+                {
+                    vars = new IloNumVar[n];
+                    coefficients = new double[n];
+                }
+                for (int k = 0; k < n; k++)
+                {
+                    vars[k] = variables[model.column(start + k)];
+                    coefficients[k] = model.value(start + k);
+                }
+                IloLinearNumExpr expr = cplex.linearNumExpr();
+                expr.addTerms(coefficients, vars, 0, n);
+                ranges[row] = cplex.addRange(model.getRowLowerBound(row),
+                        expr, model.getRowUpperBound(row));
+            }
+        }
+        model.release();
+        return ranges;
+    }
+
+    private void loadMatrixRows(int first, int last, IloRange[] ranges)
+            throws IloException
+    {
+        int rows = last - first;
+        double[] lowerBounds = new double[rows];
+        double[] upperBounds = new double[rows];
+        int[][] rowIndexes = new int[rows][];
+        double[][] rowCoefficients = new double[rows][];
+        for (int i = 0; i < rows; i++)
+        {
+            int row = first + i;
+            int start = model.rowStart(row);
+            int n = model.rowEnd(row) - start;
+            lowerBounds[i] = model.getRowLowerBound(row);
+            upperBounds[i] = model.getRowUpperBound(row);
+            rowIndexes[i] = new int[n];
+            rowCoefficients[i] = new double[n];
+            for (int k = 0; k < n; k++)
+            {
+                rowIndexes[i][k] = model.column(start + k);
+                rowCoefficients[i][k] = model.value(start + k);
+            }
+        }
+        int firstRange = matrix.addRows(lowerBounds, upperBounds, rowIndexes,
+                rowCoefficients);
+        for (int i = 0; i < rows; i++)
+            ranges[first + i] = matrix.getRange(firstRange + i);
+    }
+
+    /**
+     *
+     * @param first
+     *            The column of the first variable
+     * @param count
+     *            Number of variables
+     * @return The CPLEX variables of the columns, null before the loader is
+     *         bound to a CPLEX model
+     */
+    public IloNumVar[] getVariables(int first, int count)
+    {
+        if (variables == null)
+            return null;
+        return Arrays.copyOfRange(variables, first, first + count);
+    }
+}
@@ -0,0 +1,189 @@
+package cmu.routing.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import cmu.routing.constants.RoutingFileConstants;
+import cmu.routing.util.BinaryCacheReader;
+import cmu.routing.util.ElementType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.Storage;
+
+/**
+ *
+ * This class holds the keys a model needs from each of its input files. Only
+ * the values of these keys are kept while reading, the values of all other
+ * keys are skipped without being decoded. It also declares the element type
+ * the values of every key are stored as, and where the matrices of the
+ * values are kept.
+ *
+ */
+public class DataManifest
+{
+    private static final String[] GROUND_KEYS = {
+            RoutingFileConstants.GROUND_ARCS,
+            RoutingFileConstants.MAINTENANCE_LOC,
+            RoutingFileConstants.AIRCRAFTS,
+            RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_OUT,
+            RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_IN,
+            RoutingFileConstants.COUNT_GROUND };
+
+    private static final String[] STRING_KEYS = {
+            RoutingFileConstants.FEASIBLE_STRINGS,
+            RoutingFileConstants.LONG_STRINGS,
+            RoutingFileConstants.DAILY_FLIGHT_LEGS,
+            RoutingFileConstants.AIRCRAFTS,
+            RoutingFileConstants.LONG_STRING_INDEX,
+            RoutingFileConstants.TRUE_STRING,
+            RoutingFileConstants.COVER,
+            RoutingFileConstants.COUNT_STRINGS,
+            RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN,
+            RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT };
+
+    /* Keys holding only small whole numbers, all others are kept as doubles */
+    private static final Map<String, ElementType> ELEMENT_TYPES = new HashMap<String, ElementType>();
+    static
+    {
+        ELEMENT_TYPES.put(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN, ElementType.BYTE);
+        ELEMENT_TYPES.put(RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT, ElementType.BYTE);
+        ELEMENT_TYPES.put(RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_IN, ElementType.BYTE);
+        ELEMENT_TYPES.put(RoutingFileConstants.FLIGHT_MAINTENANCE_GROUND_OUT, ElementType.BYTE);
+        ELEMENT_TYPES.put(RoutingFileConstants.COUNT_STRINGS, ElementType.SHORT);
+        ELEMENT_TYPES.put(RoutingFileConstants.COUNT_GROUND, ElementType.SHORT);
+    }
+
+    private static volatile Storage storage = Storage.HEAP;
+    private static volatile File storageDirectory = null;
+
+    private final Set<String> groundKeys;
+    private final Set<String> stringKeys1;
+    private final Set<String> stringKeys2;
+    private final Set<String> extraStringKeys;
+    private final Set<String> hatKeys;
+
+    /**
+     *
+     * @param extraStringKeys
+     *            Keys the model needs from the second string file besides
+     *            the strings themselves
+     * @param hatKeys
+     *            Keys the model needs from the hat file
+     */
+    public DataManifest(String[] extraStringKeys, String[] hatKeys)
+    {
+        this.groundKeys = toSet(GROUND_KEYS);
+        this.stringKeys1 = toSet(STRING_KEYS);
+        Set<String> keys = new HashSet<String>(stringKeys1);
+        keys.addAll(Arrays.asList(extraStringKeys));
+        this.stringKeys2 = Collections.unmodifiableSet(keys);
+        this.extraStringKeys = toSet(extraStringKeys);
+        this.hatKeys = toSet(hatKeys);
+    }
+
+    public Set<String> getGroundKeys()
+    {
+        return groundKeys;
+    }
+
+    public Set<String> getStringKeys1()
+    {
+        return stringKeys1;
+    }
+
+    public Set<String> getStringKeys2()
+    {
+        return stringKeys2;
+    }
+
+    /**
+     *
+     * @return The keys of the second string file besides the strings
+     *         themselves
+     */
+    public Set<String> getExtraStringKeys()
+    {
+        return extraStringKeys;
+    }
+
+    public Set<String> getHatKeys()
+    {
+        return hatKeys;
+    }
+
+    /**
+     *
+     * @param key
+     *            The key of the input file
+     * @return The type the values of the key are stored as
+     */
+    public static ElementType getElementType(String key)
+    {
+        ElementType type = ELEMENT_TYPES.get(key);
+        return type == null ? ElementType.DOUBLE : type;
+    }
+
+    /**
+     *
+     * Creates the matrix the values of a key are stored in
+     *
+     * @param key
+     *            The key of the input file
+     * @param rows
+     *            Number of rows
+     * @param cols
+     *            Number of columns
+     * @return The matrix in the element type of the key
+     */
+    public static NumberMatrix createMatrix(String key, int rows, int cols)
+    {
+        return NumberMatrix.create(getElementType(key), rows, cols, storage,
+                storageDirectory);
+    }
+
+    /**
+     *
+     * Reads the matrix of a key from a cache, kept in the same storage as
+     * the matrices created by {@link #createMatrix(String, int, int)}
+     *
+     * @param cache
+     *            The cache holding the matrix
+     * @param key
+     *            The key of the input file
+     * @return The matrix, or null if the cache does not hold it
+     * @throws IOException
+     *             Thrown when any error while reading the cache
+     */
+    public static NumberMatrix readMatrix(BinaryCacheReader cache, String key)
+            throws IOException
+    {
+        return cache.readNumberMatrix(key, storage, storageDirectory);
+    }
+
+    /**
+     *
+     * Sets where the matrices created after this call are kept
+     *
+     * @param storage
+     *            Where the values are kept
+     * @param directory
+     *            The directory of the storage files of mapped matrices, or
+     *            null for the default temporary directory
+     */
+    public static void setStorage(Storage storage, File directory)
+    {
+        DataManifest.storage = storage;
+        DataManifest.storageDirectory = directory;
+    }
+
+    private static Set<String> toSet(String[] keys)
+    {
+        return Collections.unmodifiableSet(new HashSet<String>(Arrays
+                .asList(keys)));
+    }
+}
@@ -0,0 +1,268 @@
+package cmu.routing.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import cmu.routing.util.ArrayUtil;
+import cmu.routing.util.BinaryCacheReader;
+import cmu.routing.util.ConcurrentLoader;
+import cmu.routing.util.DataContents;
+import cmu.routing.util.FileUtil;
+import cmu.routing.util.MemoryReport;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
+
+/**
+ *
+ * This class holds the data of the routing optimization models that add the
+ * values of one key of the hat file, such as the hat values or the failure
+ * probabilities, to the base data. The values are aligned to the cover, so
+ * only the values of the strings covering a flight leg are kept. A model
+ * only gives the key and the name of its cache.
+ *
+ */
+public abstract class HatRoutingData implements RoutingData
+{
+    private static final Set<String> NO_KEYS = Collections.emptySet();
+
+    private final DataManifest manifest;
+    private final String hatKey;
+    private final String cacheName;
+    private BaseRoutingData base = null;
+    private int[] stringsInSolution = null;
+    private SparseMatrix hatValues = null;
+
+    /**
+     *
+     * @param manifest
+     *            The keys the model needs besides the base data
+     * @param hatKey
+     *            The key of the hat file holding the values of the model
+     * @param cacheName
+     *            The name of the cache file of the model
+     */
+    protected HatRoutingData(DataManifest manifest, String hatKey,
+            String cacheName)
+    {
+        this.manifest = manifest;
+        this.hatKey = hatKey;
+        this.cacheName = cacheName;
+    }
+
+    @Override
+    public void populateData(String baseInputFile1, String baseInputFile2, String baseInputFile3, String incDataFile, String hatDataFile, String mechanism)
+            throws IOException
+    {
+        String[] sources = BaseRoutingData.getSources(baseInputFile1,
+                baseInputFile2, baseInputFile3, incDataFile, mechanism,
+                hatDataFile);
+        File cacheFile = FileUtil.getCacheFile(baseInputFile1, cacheName, mechanism);
+
+        ConcurrentLoader loader = new ConcurrentLoader();
+        try
+        {
+            /* The hat file is parsed while the base data is loaded */
+            Future<DataContents> hatFile = null;
+            boolean cached = BinaryCacheReader.isValid(cacheFile, sources);
+            if (!cached)
+                hatFile = loader.readHatFile(hatDataFile, manifest.getHatKeys());
+
+            /* The data shared by all models is only loaded once */
+            DataContents extraValues = new DataContents();
+            base = BaseRoutingData.load(baseInputFile1, baseInputFile2,
+                    baseInputFile3, incDataFile, mechanism,
+                    cached ? NO_KEYS : manifest.getExtraStringKeys(),
+                    extraValues);
+            stringsInSolution = createStringsInSolution(base.getStrings());
+
+            if (cached)
+            {
+                if (readCache(cacheFile, sources))
+                    return;
+                hatFile = loader.readHatFile(hatDataFile, manifest.getHatKeys());
+                BaseRoutingData.load(baseInputFile1, baseInputFile2,
+                        baseInputFile3, incDataFile, mechanism,
+                        manifest.getExtraStringKeys(), extraValues);
+            }
+
+            DataContents contents = ConcurrentLoader.get(hatFile);
+            /* Only the values of the strings covering a flight leg are kept */
+            hatValues = ArrayUtil.readMatrixValues(base.getCover(),
+                    contents.getValue(hatKey));
+            loadExtraData(extraValues);
+        } finally
+        {
+            loader.shutdown();
+        }
+
+        writeCache(cacheFile, sources);
+    }
+
+    /**
+     *
+     * @param strings
+     *            The number of strings
+     * @return The initial solution value of every string
+     */
+    protected int[] createStringsInSolution(int strings)
+    {
+        int[] stringsInSolution = new int[strings];
+        for (int i = 0; i < strings; i++){
+            stringsInSolution[i] = i+1;
+        }
+        return stringsInSolution;
+    }
+
+    /**
+     *
+     * Used by a model to populate its own data from the values of the extra
+     * string keys of its manifest
+     *
+     * @param extraValues
+     *            The values of the extra string keys
+     */
+    protected void loadExtraData(DataContents extraValues)
+    {
+    }
+
+    /**
+     *
+     * Reads the hat values from the cache of the model
+     *
+     * @param cacheFile
+     *            The cache file of the model
+     * @param sources
+     *            The input files the cache was written from
+     * @return true if all data of the model was read
+     */
+    protected boolean readCache(File cacheFile, String[] sources)
+    {
+        hatValues = base.readCachedValues(cacheFile, sources, hatKey);
+        return hatValues != null;
+    }
+
+    /**
+     *
+     * Writes the hat values to the cache of the model
+     *
+     * @param cacheFile
+     *            The cache file of the model
+     * @param sources
+     *            The input files the data was read from
+     */
+    protected void writeCache(File cacheFile, String[] sources)
+    {
+        base.writeCachedValues(cacheFile, sources, hatKey, hatValues);
+    }
+
+    @Override
+    public void reportMemory(MemoryReport report)
+    {
+        base.reportMemory(report);
+        report.add("stringsInSolution", stringsInSolution);
+        report.addValues(hatKey, hatValues);
+    }
+
+    protected BaseRoutingData getBase()
+    {
+        return base;
+    }
+
+    /**
+     *
+     * @return The values of the hat key of the strings covering every flight
+     *         leg, at the positions of the cover
+     */
+    protected SparseMatrix getHatValues()
+    {
+        return hatValues;
+    }
+
+    protected void setHatValues(SparseMatrix hatValues)
+    {
+        this.hatValues = hatValues;
+    }
+
+    public int getStrings()
+    {
+        return base.getStrings();
+    }
+
+    public int getGroundArcs()
+    {
+        return base.getGroundArcs();
+    }
+
+    public int getMaintLocations()
+    {
+        return base.getMaintLocations();
+    }
+
+    public int getFlightLegs()
+    {
+        return base.getFlightLegs();
+    }
+
+    public int getAirCrafts()
+    {
+        return base.getAirCrafts();
+    }
+
+    public NumberMatrix getPropDelay()
+    {
+        return base.getPropDelay();
+    }
+
+    public SparseMatrix getCover()
+    {
+        return base.getCover();
+    }
+
+    public StringIncidence getStringIncidence()
+    {
+        return base.getStringIncidence();
+    }
+
+    public int[] getStringsCovering(int flightLeg)
+    {
+        return base.getStringsCovering(flightLeg);
+    }
+
+    public int[] getStringsInSolution()
+    {
+        return stringsInSolution;
+    }
+
+    public NumberMatrix getFlightMaintStringsIn()
+    {
+        return base.getFlightMaintStringsIn();
+    }
+
+    public NumberMatrix getFlightMaintGroundIn()
+    {
+        return base.getFlightMaintGroundIn();
+    }
+
+    public NumberMatrix getFlightMaintStringsOut()
+    {
+        return base.getFlightMaintStringsOut();
+    }
+
+    public NumberMatrix getFlightMaintGroundOut()
+    {
+        return base.getFlightMaintGroundOut();
+    }
+
+    public NumberMatrix getCountStrings()
+    {
+        return base.getCountStrings();
+    }
+
+    public NumberMatrix getCountGround()
+    {
+        return base.getCountGround();
+    }
+}
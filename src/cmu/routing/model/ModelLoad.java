@@ -0,0 +1,18 @@
+package cmu.routing.model;
+
+/**
+ *
+ * How the constraint rows of a {@link SparseModel} are handed to
+ * CPLEX. Every expression added to the model is a separate call into the
+ * native library, so a model over all the strings is loaded fastest as one
+ * matrix.
+ *
+ */
+public enum ModelLoad
+{
+    /** One expression and range per row */
+    EXPRESSION,
+
+    /** All rows of a constraint in one call to an LP matrix of the model */
+    MATRIX
+}
@@ -2,6 +2,8 @@ package cmu.routing.model;
 
 import java.io.IOException;
 
+import cmu.routing.util.MemoryReport;
+
 public interface RoutingData
 {
     /**
@@ -19,4 +21,12 @@ public interface RoutingData
     void populateData(String baseInputFile1, String baseInputFile2,
             String baseInputFile3, String incDataFile, String hatDataFile,
             String mechanism) throws IOException;
+
+    /**
+     * Adds the number of elements and the bytes of every array held by the
+     * data to the report
+     * 
+     * @param report The report the arrays are added to
+     */
+    void reportMemory(MemoryReport report);
 }
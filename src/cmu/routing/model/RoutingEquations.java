@@ -38,6 +38,20 @@ public interface RoutingEquations
     //public void setConstraints(IloCplex cplex, RoutingData data)
       //      throws IloException;
     
+    /**
+     * 
+     * Builds the objective function and the constraint equations of the model
+     * without a solver
+     * 
+     * @param data
+     *            Object holding the necessary data
+     * @param stringsInSolution
+     *            The strings considered, used by the models adding the
+     *            constraints with them and null for the others
+     * @return The model with the variables, objective and constraints
+     */
+	public SparseModel buildModel(RoutingData data, int[][] stringsInSolution);
+
 	public IloNumVar[] getX();
 
 	public IloRange[] getCoverConstraints1();
@@ -0,0 +1,223 @@
+package cmu.routing.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * A linear model held in memory without a solver. It holds the bounds and
+ * type of every variable, the objective coefficient of every variable and
+ * the constraint rows in compressed sparse row form with the range of every
+ * row. The equation classes fill the model, and a {@link CplexLoader} hands
+ * it to CPLEX, so the model can be built and measured without a CPLEX
+ * license.
+ *
+ * The variables are added in blocks and are known by their column. The rows
+ * are added one by one as {@link SparseRows}, or with
+ * {@link #addRows(int, RowGenerator)} for the rows of a constraint that are
+ * independent of each other, which are built on all cores as
+ *
+ * <pre>
+ * model.addRows(flightLegs, new SparseModel.RowGenerator()
+ * {
+ *     public void addRows(int i, SparseRows rows)
+ *     {
+ *         rows.addRow(cover, i, 1, x);
+ *         rows.addRange(1, 1);
+ *     }
+ * });
+ * </pre>
+ *
+ */
+public class SparseModel extends SparseRows
+{
+    /* The variables */
+    private int columns = 0;
+    private double[] lowerBounds = new double[16];
+    private double[] upperBounds = new double[16];
+    private VariableType[] types = new VariableType[16];
+    private double[] objective = new double[16];
+    private boolean maximize = false;
+
+    /* The rows of a constraint built in parallel, one for every chunk */
+    private final List<SparseRows> chunks = new ArrayList<SparseRows>();
+
+    /**
+     *
+     * Adds a block of variables with the same bounds and type
+     *
+     * @param count
+     *            Number of variables
+     * @param lb
+     *            The lower bound of every variable
+     * @param ub
+     *            The upper bound of every variable
+     * @param type
+     *            The type of every variable
+     * @return The column of the first variable of the block
+     */
+    public int addColumns(int count, double lb, double ub, VariableType type)
+    {
+        int first = columns;
+        columns += count;
+        if (columns > lowerBounds.length)
+        {
+            int capacity = Math.max(columns, lowerBounds.length * 2);
+            lowerBounds = Arrays.copyOf(lowerBounds, capacity);
+            upperBounds = Arrays.copyOf(upperBounds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            objective = Arrays.copyOf(objective, capacity);
+        }
+        Arrays.fill(lowerBounds, first, columns, lb);
+        Arrays.fill(upperBounds, first, columns, ub);
+        Arrays.fill(types, first, columns, type);
+        ensureColumns(columns);
+        return first;
+    }
+
+    /**
+     *
+     * @param maximize
+     *            True when the objective is maximized, false when it is
+     *            minimized
+     */
+    public void setMaximize(boolean maximize)
+    {
+        this.maximize = maximize;
+    }
+
+    public boolean isMaximize()
+    {
+        return maximize;
+    }
+
+    /**
+     *
+     * Adds to the objective coefficient of a variable
+     *
+     * @param column
+     *            The column of the variable
+     * @param coefficient
+     *            The value added to the coefficient
+     */
+    public void addObjective(int column, double coefficient)
+    {
+        objective[column] += coefficient;
+    }
+
+    /**
+     *
+     * Adds the rows of a constraint whose indexes are independent of each
+     * other. The indexes are split into a chunk for every core, every chunk
+     * adds the rows of its indexes to its own rows, and the rows of the
+     * chunks are then added to the model in the order of the indexes. The
+     * generator must only read shared data.
+     *
+     * @param count
+     *            Number of indexes
+     * @param generator
+     *            Adds the rows of every index
+     */
+    public void addRows(int count, final RowGenerator generator)
+    {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (count < 2 || parallelism < 2)
+        {
+            for (int i = 0; i < count; i++)
+                generator.addRows(i, this);
+            return;
+        }
+
+        final int chunkCount = Math.min(count, parallelism);
+        final int[] bounds = new int[chunkCount + 1];
+        for (int i = 0; i <= chunkCount; i++)
+            bounds[i] = (int) ((long) count * i / chunkCount);
+        while (chunks.size() < chunkCount)
+            chunks.add(new SparseRows());
+        for (int i = 0; i < chunkCount; i++)
+            chunks.get(i).ensureColumns(columns);
+
+        try
+        {
+            ForkJoinPool.commonPool().invoke(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+                    for (int i = 0; i < chunkCount; i++)
+                    {
+                        final int chunk = i;
+                        tasks.add(new RecursiveAction()
+                        {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            protected void compute()
+                            {
+                                SparseRows rows = chunks.get(chunk);
+                                for (int j = bounds[chunk]; j < bounds[chunk + 1]; j++)
+                                    generator.addRows(j, rows);
+                            }
+                        });
+                    }
+                    invokeAll(tasks);
+                }
+            });
+
+            for (int i = 0; i < chunkCount; i++)
+                addAll(chunks.get(i));
+        } finally
+        {
+            for (int i = 0; i < chunkCount; i++)
+                chunks.get(i).release();
+        }
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public double getLowerBound(int column)
+    {
+        return lowerBounds[column];
+    }
+
+    public double getUpperBound(int column)
+    {
+        return upperBounds[column];
+    }
+
+    public VariableType getType(int column)
+    {
+        return types[column];
+    }
+
+    public double getObjective(int column)
+    {
+        return objective[column];
+    }
+
+    /**
+     *
+     * Adds the rows of one index of a constraint
+     *
+     */
+    public interface RowGenerator
+    {
+        /**
+         *
+         * @param index
+         *            The index, such as the flight leg of a cover row
+         * @param rows
+         *            The rows the rows of the index are added to
+         */
+        void addRows(int index, SparseRows rows);
+    }
+}
@@ -0,0 +1,290 @@
+package cmu.routing.model;
+
+import java.util.Arrays;
+
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
+
+/**
+ *
+ * Rows of a {@link SparseModel} in compressed sparse row form with the range
+ * of every row. A row is added as
+ *
+ * <pre>
+ * rows.add(coefficient, column);
+ * rows.addRow(matrix, i, scale, firstColumn);
+ * rows.addRange(lb, ub);
+ * </pre>
+ *
+ * Terms with a zero coefficient are not added, and terms of the same column
+ * in a row are summed. Use <code>-Double.MAX_VALUE</code> and
+ * <code>Double.MAX_VALUE</code> for a bound that is not given. The rows are
+ * not safe to be added from more than one thread.
+ *
+ */
+public class SparseRows
+{
+    private int rows = 0;
+    private int[] rowStarts = new int[17];
+    private int[] rowColumns = new int[64];
+    private double[] rowValues = new double[64];
+    private double[] rowLowerBounds = new double[16];
+    private double[] rowUpperBounds = new double[16];
+
+    /* The row being added, with the position of every column in it */
+    private double[] coefficients = new double[64];
+    private int[] indexes = new int[64];
+    private int size = 0;
+    private int[] positions = new int[0];
+
+    /**
+     *
+     * Makes room for the terms of the given number of columns
+     *
+     * @param columns
+     *            Number of columns of the model
+     */
+    void ensureColumns(int columns)
+    {
+        if (columns > positions.length)
+        {
+            int filled = positions.length;
+            positions = Arrays.copyOf(positions,
+                    Math.max(columns, filled * 2));
+            Arrays.fill(positions, filled, positions.length, -1);
+        }
+    }
+
+    /**
+     *
+     * Adds a term to the row being added
+     *
+     * @param coefficient
+     *            The coefficient of the term, not added when 0
+     * @param column
+     *            The column of the variable of the term
+     */
+    public void add(double coefficient, int column)
+    {
+        if (coefficient == 0)
+            return;
+        int position = positions[column];
+        if (position >= 0)
+        {
+            coefficients[position] += coefficient;
+            return;
+        }
+        if (size == coefficients.length)
+        {
+            coefficients = Arrays.copyOf(coefficients, size * 2);
+            indexes = Arrays.copyOf(indexes, size * 2);
+        }
+        coefficients[size] = coefficient;
+        indexes[size] = column;
+        positions[column] = size;
+        size++;
+    }
+
+    /**
+     *
+     * Adds the nonzero values of a row of a sparse matrix to the row being
+     * added, the columns of the matrix taken from the given column on
+     *
+     * @param matrix
+     *            The matrix
+     * @param row
+     *            The row of the matrix
+     * @param scale
+     *            The factor every value is multiplied with
+     * @param first
+     *            The column of the first column of the matrix
+     */
+    public void addRow(SparseMatrix matrix, int row, double scale, int first)
+    {
+        for (int k = matrix.rowStart(row); k < matrix.rowEnd(row); k++)
+            add(scale * matrix.value(k), first + matrix.column(k));
+    }
+
+    /**
+     *
+     * Adds the nonzero values of a row of a matrix to the row being added, the
+     * columns of the matrix taken from the given column on
+     *
+     * @param matrix
+     *            The matrix
+     * @param row
+     *            The row of the matrix
+     * @param first
+     *            The column of the first column of the matrix
+     */
+    public void addRow(NumberMatrix matrix, int row, int first)
+    {
+        int cols = matrix.getCols();
+        for (int j = 0; j < cols; j++)
+            add(matrix.get(row, j), first + j);
+    }
+
+    /**
+     *
+     * Ends the row being added
+     *
+     * @param lb
+     *            The lower bound of the row
+     * @param ub
+     *            The upper bound of the row
+     * @return The index of the row
+     */
+    public int addRange(double lb, double ub)
+    {
+        ensureRows(rows + 1);
+        int end = rowStarts[rows];
+        ensureNonZeros(end + size);
+
+        for (int k = 0; k < size; k++)
+        {
+            positions[indexes[k]] = -1;
+            /* Summed terms may have cancelled out */
+            if (coefficients[k] != 0)
+            {
+                rowColumns[end] = indexes[k];
+                rowValues[end] = coefficients[k];
+                end++;
+            }
+        }
+        size = 0;
+
+        rowLowerBounds[rows] = lb;
+        rowUpperBounds[rows] = ub;
+        rowStarts[rows + 1] = end;
+        return rows++;
+    }
+
+    /**
+     *
+     * Adds all the rows of other rows after the rows added so far
+     *
+     * @param other
+     *            The rows added
+     */
+    void addAll(SparseRows other)
+    {
+        int nonZeros = rowStarts[rows];
+        ensureRows(rows + other.rows);
+        ensureNonZeros(nonZeros + other.getNonZeros());
+
+        System.arraycopy(other.rowColumns, 0, rowColumns, nonZeros,
+                other.getNonZeros());
+        System.arraycopy(other.rowValues, 0, rowValues, nonZeros,
+                other.getNonZeros());
+        System.arraycopy(other.rowLowerBounds, 0, rowLowerBounds, rows,
+                other.rows);
+        System.arraycopy(other.rowUpperBounds, 0, rowUpperBounds, rows,
+                other.rows);
+        for (int i = 1; i <= other.rows; i++)
+            rowStarts[rows + i] = nonZeros + other.rowStarts[i];
+        rows += other.rows;
+    }
+
+    /**
+     *
+     * Removes all the rows and the row being added, and frees the arrays of
+     * the rows. The rows added after this call are indexed from 0 again.
+     */
+    void release()
+    {
+        for (int k = 0; k < size; k++)
+            positions[indexes[k]] = -1;
+        size = 0;
+        rows = 0;
+        rowStarts = new int[17];
+        rowColumns = new int[64];
+        rowValues = new double[64];
+        rowLowerBounds = new double[16];
+        rowUpperBounds = new double[16];
+    }
+
+    private void ensureRows(int count)
+    {
+        if (count > rowLowerBounds.length)
+        {
+            int capacity = Math.max(count, rowLowerBounds.length * 2);
+            rowLowerBounds = Arrays.copyOf(rowLowerBounds, capacity);
+            rowUpperBounds = Arrays.copyOf(rowUpperBounds, capacity);
+            rowStarts = Arrays.copyOf(rowStarts, capacity + 1);
+        }
+    }
+
+    private void ensureNonZeros(int count)
+    {
+        if (count > rowColumns.length)
+        {
+            int capacity = Math.max(count, rowColumns.length * 2);
+            rowColumns = Arrays.copyOf(rowColumns, capacity);
+            rowValues = Arrays.copyOf(rowValues, capacity);
+        }
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getNonZeros()
+    {
+        return rowStarts[rows];
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @return The first position of the terms of the row
+     */
+    public int rowStart(int row)
+    {
+        return rowStarts[row];
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @return The position after the last term of the row
+     */
+    public int rowEnd(int row)
+    {
+        return rowStarts[row + 1];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position of the term
+     * @return The column of the term
+     */
+    public int column(int position)
+    {
+        return rowColumns[position];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position of the term
+     * @return The coefficient of the term
+     */
+    public double value(int position)
+    {
+        return rowValues[position];
+    }
+
+    public double getRowLowerBound(int row)
+    {
+        return rowLowerBounds[row];
+    }
+
+    public double getRowUpperBound(int row)
+    {
+        return rowUpperBounds[row];
+    }
+}
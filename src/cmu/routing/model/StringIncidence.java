@@ -0,0 +1,201 @@
+package cmu.routing.model;
+
+import cmu.routing.util.MemoryReport;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
+
+/**
+ *
+ * This class holds for every string the flight legs it covers and the
+ * maintenance events it takes part in, so a string can be walked over its
+ * own few incidences instead of scanning every flight leg and maintenance
+ * location. The flight legs are walked as
+ *
+ * <pre>
+ * for (int k = incidence.flightStart(j); k &lt; incidence.flightEnd(j); k++)
+ *     ... incidence.flight(k) ...
+ * </pre>
+ *
+ * and the maintenance events as
+ *
+ * <pre>
+ * for (int k = incidence.eventStart(j); k &lt; incidence.eventEnd(j); k++)
+ *     ... incidence.eventLocation(k), incidence.eventIn(k), incidence.eventOut(k) ...
+ * </pre>
+ *
+ */
+public class StringIncidence
+{
+    private final int strings;
+
+    /* The flight legs are taken from the column index of the cover */
+    private final SparseMatrix cover;
+
+    /* Maintenance events in compressed sparse column form */
+    private final int[] eventStarts;
+    private final int[] eventLocations;
+    private final double[] eventsIn;
+    private final double[] eventsOut;
+
+    /**
+     *
+     * @param cover
+     *            The flight legs covered by every string
+     * @param flightMaintStringsIn
+     *            The flights into maintenance of every string
+     * @param flightMaintStringsOut
+     *            The flights out of maintenance of every string
+     */
+    public StringIncidence(SparseMatrix cover,
+            NumberMatrix flightMaintStringsIn, NumberMatrix flightMaintStringsOut)
+    {
+        this.strings = cover.getCols();
+        this.cover = cover;
+
+        int maintLoc = flightMaintStringsIn.getRows();
+        eventStarts = new int[strings + 1];
+        for (int j = 0; j < strings; j++)
+        {
+            int count = 0;
+            for (int i = 0; i < maintLoc; i++)
+            {
+                if (flightMaintStringsIn.get(i, j) != 0
+                        || flightMaintStringsOut.get(i, j) != 0)
+                    count++;
+            }
+            eventStarts[j + 1] = eventStarts[j] + count;
+        }
+
+        int events = eventStarts[strings];
+        eventLocations = new int[events];
+        eventsIn = new double[events];
+        eventsOut = new double[events];
+        int k = 0;
+        for (int j = 0; j < strings; j++)
+        {
+            for (int i = 0; i < maintLoc; i++)
+            {
+                double in = flightMaintStringsIn.get(i, j);
+                double out = flightMaintStringsOut.get(i, j);
+                if (in != 0 || out != 0)
+                {
+                    eventLocations[k] = i;
+                    eventsIn[k] = in;
+                    eventsOut[k] = out;
+                    k++;
+                }
+            }
+        }
+    }
+
+    public int getStrings()
+    {
+        return strings;
+    }
+
+    /**
+     *
+     * @param string
+     *            The string
+     * @return The first position of the flight legs of the string
+     */
+    public int flightStart(int string)
+    {
+        return cover.columnStart(string);
+    }
+
+    /**
+     *
+     * @param string
+     *            The string
+     * @return The position after the last flight leg of the string
+     */
+    public int flightEnd(int string)
+    {
+        return cover.columnEnd(string);
+    }
+
+    /**
+     *
+     * @param position
+     *            The position of the flight leg
+     * @return The flight leg at the position
+     */
+    public int flight(int position)
+    {
+        return cover.row(position);
+    }
+
+    /**
+     *
+     * @param string
+     *            The string
+     * @return The first position of the maintenance events of the string
+     */
+    public int eventStart(int string)
+    {
+        return eventStarts[string];
+    }
+
+    /**
+     *
+     * @param string
+     *            The string
+     * @return The position after the last maintenance event of the string
+     */
+    public int eventEnd(int string)
+    {
+        return eventStarts[string + 1];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position of the maintenance event
+     * @return The maintenance location of the event
+     */
+    public int eventLocation(int position)
+    {
+        return eventLocations[position];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position of the maintenance event
+     * @return The value of the flight into maintenance of the event
+     */
+    public double eventIn(int position)
+    {
+        return eventsIn[position];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position of the maintenance event
+     * @return The value of the flight out of maintenance of the event
+     */
+    public double eventOut(int position)
+    {
+        return eventsOut[position];
+    }
+
+    /**
+     *
+     * Adds the arrays of the maintenance events to the report. The flight
+     * legs are the column index of the cover and are reported with it.
+     *
+     * @param report
+     *            The report the arrays are added to
+     * @param name
+     *            The name the index is reported under
+     */
+    public void reportMemory(MemoryReport report, String name)
+    {
+        report.add(name + ".eventStarts", eventStarts);
+        report.add(name + ".eventLocations", eventLocations);
+        report.add(name + ".eventsIn", eventsIn);
+        report.add(name + ".eventsOut", eventsOut);
+    }
+}
@@ -0,0 +1,378 @@
+package cmu.routing.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import cmu.routing.constants.RoutingFileConstants;
+import cmu.routing.util.MemoryReport;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
+
+/**
+ *
+ * This class holds the strings of the base data with the dominated strings
+ * removed. The cover and maintenance rows of the nominal model are
+ * equalities, so a string can only take the place of a string with the same
+ * flight legs and maintenance events. Among such strings, a string is
+ * dominated by another one that counts no more in the fleet size row and has
+ * no higher propagation delay: replacing it keeps a solution feasible and
+ * does not make it worse. The dominated strings, which include all but one
+ * of every group of duplicate strings, are dropped before the model is
+ * built.
+ *
+ * The strings that are kept are numbered anew. The original index of every
+ * kept string is remembered, so the solution can be given in the original
+ * strings.
+ *
+ */
+public class StringReduction
+{
+    private final int originalCount;
+    private final int[] originalStrings;
+    private final SparseMatrix cover;
+    private final NumberMatrix propDelay;
+    private final NumberMatrix countStrings;
+    private final NumberMatrix flightMaintStringsIn;
+    private final NumberMatrix flightMaintStringsOut;
+    private StringIncidence stringIncidence = null;
+
+    /**
+     *
+     * Removes the dominated strings of the base data
+     *
+     * @param base
+     *            The base data holding all strings
+     */
+    public StringReduction(BaseRoutingData base)
+    {
+        this(base.getCover(), base.getPropDelay(), base.getCountStrings(),
+                base.getFlightMaintStringsIn(), base.getFlightMaintStringsOut());
+    }
+
+    /**
+     *
+     * Removes the dominated strings of the given columns
+     *
+     * @param baseCover
+     *            The cover of all strings
+     * @param delay
+     *            The propagation delay of all strings
+     * @param count
+     *            The count of all strings in the fleet size row
+     * @param maintIn
+     *            The maintenance events entered by all strings
+     * @param maintOut
+     *            The maintenance events left by all strings
+     */
+    StringReduction(final SparseMatrix baseCover, final NumberMatrix delay,
+            final NumberMatrix count, NumberMatrix maintIn,
+            NumberMatrix maintOut)
+    {
+        int strings = baseCover.getCols();
+        originalCount = strings;
+        int[] columnMap = new int[strings];
+
+        /* Strings with the same flight legs and maintenance events are grouped */
+        Map<StringColumn, Integer> groups = new HashMap<StringColumn, Integer>();
+        int[] groupOf = new int[strings];
+        for (int j = 0; j < strings; j++)
+        {
+            /*
+             * Copies of a string covering no flight leg may all be part of a
+             * solution, so the ones lowering the delay are all kept
+             */
+            if (baseCover.columnStart(j) == baseCover.columnEnd(j)
+                    && delay.get(0, j) < 0)
+            {
+                groupOf[j] = -1;
+                continue;
+            }
+
+            StringColumn column = new StringColumn(baseCover, maintIn,
+                    maintOut, j);
+            Integer group = groups.get(column);
+            if (group == null)
+            {
+                group = groups.size();
+                groups.put(column, group);
+            }
+            groupOf[j] = group;
+        }
+
+        int groupCount = groups.size();
+        groups = null;
+        int[] groupStarts = new int[groupCount + 1];
+        for (int j = 0; j < strings; j++)
+        {
+            if (groupOf[j] >= 0)
+                groupStarts[groupOf[j] + 1]++;
+        }
+        for (int g = 0; g < groupCount; g++)
+            groupStarts[g + 1] += groupStarts[g];
+        Integer[] members = new Integer[groupStarts[groupCount]];
+        int[] filled = Arrays.copyOf(groupStarts, groupCount);
+        for (int j = 0; j < strings; j++)
+        {
+            if (groupOf[j] >= 0)
+                members[filled[groupOf[j]]++] = j;
+            else
+                columnMap[j] = j;
+        }
+        filled = null;
+        groupOf = null;
+
+        /* The strings of a group by count, then by delay, then by index */
+        Comparator<Integer> order = new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer j, Integer k)
+            {
+                int result = Double.compare(count.get(0, j), count.get(0, k));
+                if (result == 0)
+                    result = Double.compare(delay.get(0, j), delay.get(0, k));
+                return result != 0 ? result : j.compareTo(k);
+            }
+        };
+        for (int g = 0; g < groupCount; g++)
+        {
+            Arrays.sort(members, groupStarts[g], groupStarts[g + 1], order);
+            int first = members[groupStarts[g]];
+            /*
+             * Strings covering a flight leg exclude each other, while strings
+             * covering none do not, so those are only replaced by a string
+             * with the same count
+             */
+            boolean exclusive = baseCover.columnStart(first) != baseCover
+                    .columnEnd(first);
+            double lowestDelay = Double.POSITIVE_INFINITY;
+            double lastCount = count.get(0, first);
+            for (int k = groupStarts[g]; k < groupStarts[g + 1]; k++)
+            {
+                int j = members[k];
+                if (!exclusive && count.get(0, j) != lastCount)
+                {
+                    lowestDelay = Double.POSITIVE_INFINITY;
+                    lastCount = count.get(0, j);
+                }
+                /* A string before it counts no more and delays no more */
+                if (delay.get(0, j) < lowestDelay)
+                {
+                    lowestDelay = delay.get(0, j);
+                    columnMap[j] = j;
+                } else
+                {
+                    columnMap[j] = -1;
+                }
+            }
+        }
+        members = null;
+
+        int reduced = 0;
+        for (int j = 0; j < strings; j++)
+        {
+            if (columnMap[j] >= 0)
+                columnMap[j] = reduced++;
+        }
+        originalStrings = new int[reduced];
+        for (int j = 0; j < strings; j++)
+        {
+            if (columnMap[j] >= 0)
+                originalStrings[columnMap[j]] = j;
+        }
+        System.out.println("Strings reduced from " + strings + " to "
+                + reduced);
+
+        cover = SparseMatrix.mergeColumns(reduced,
+                new SparseMatrix[] { baseCover },
+                new int[][] { columnMap });
+        propDelay = select(RoutingFileConstants.PROPOGATION_DELAY, delay);
+        countStrings = select(RoutingFileConstants.COUNT_STRINGS, count);
+        flightMaintStringsIn = select(
+                RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_IN, maintIn);
+        flightMaintStringsOut = select(
+                RoutingFileConstants.FLIGHT_MAINTENANCE_STRINGS_OUT, maintOut);
+    }
+
+    private NumberMatrix select(String key, NumberMatrix matrix)
+    {
+        int rows = matrix.getRows();
+        NumberMatrix selected = DataManifest.createMatrix(key, rows,
+                originalStrings.length);
+        for (int i = 0; i < rows; i++)
+        {
+            for (int j = 0; j < originalStrings.length; j++)
+                selected.set(i, j, matrix.get(i, originalStrings[j]));
+        }
+        return selected;
+    }
+
+    /**
+     *
+     * Gives the values of the kept strings for all the original strings. The
+     * dropped strings get the value 0.
+     *
+     * @param values
+     *            The value of every kept string
+     * @return The value of every original string
+     */
+    public double[] toOriginal(double[] values)
+    {
+        double[] original = new double[originalCount];
+        for (int j = 0; j < originalStrings.length; j++)
+            original[originalStrings[j]] = values[j];
+        return original;
+    }
+
+    /**
+     *
+     * Adds the arrays of the kept strings to the report
+     *
+     * @param report
+     *            The report the arrays are added to
+     */
+    public void reportMemory(MemoryReport report)
+    {
+        report.add("reduction.originalStrings", originalStrings);
+        report.add("reduction.cover", cover);
+        report.add("reduction.propDelay", propDelay);
+        report.add("reduction.countStrings", countStrings);
+        report.add("reduction.flightMaintStringsIn", flightMaintStringsIn);
+        report.add("reduction.flightMaintStringsOut", flightMaintStringsOut);
+        if (stringIncidence != null)
+            stringIncidence.reportMemory(report, "reduction.stringIncidence");
+    }
+
+    public int getStrings()
+    {
+        return originalStrings.length;
+    }
+
+    /**
+     *
+     * @return The original index of every kept string
+     */
+    public int[] getOriginalStrings()
+    {
+        return originalStrings;
+    }
+
+    public SparseMatrix getCover()
+    {
+        return cover;
+    }
+
+    public NumberMatrix getPropDelay()
+    {
+        return propDelay;
+    }
+
+    public NumberMatrix getCountStrings()
+    {
+        return countStrings;
+    }
+
+    public NumberMatrix getFlightMaintStringsIn()
+    {
+        return flightMaintStringsIn;
+    }
+
+    public NumberMatrix getFlightMaintStringsOut()
+    {
+        return flightMaintStringsOut;
+    }
+
+    /**
+     *
+     * Gives the flight legs and maintenance events of every kept string. The
+     * index is built the first time it is asked for.
+     *
+     * @return The incidences of every kept string
+     */
+    public synchronized StringIncidence getStringIncidence()
+    {
+        if (stringIncidence == null)
+            stringIncidence = new StringIncidence(cover,
+                    flightMaintStringsIn, flightMaintStringsOut);
+        return stringIncidence;
+    }
+
+    /*
+     * The columns of a string in the cover and maintenance rows of the model.
+     * The flight legs are walked through the column index of the cover, so
+     * comparing two strings does not scan all flight legs.
+     */
+    private static class StringColumn
+    {
+        private final SparseMatrix cover;
+        private final NumberMatrix flightMaintStringsIn;
+        private final NumberMatrix flightMaintStringsOut;
+        private final int string;
+        private final int hash;
+
+        StringColumn(SparseMatrix cover, NumberMatrix flightMaintStringsIn,
+                NumberMatrix flightMaintStringsOut, int string)
+        {
+            this.cover = cover;
+            this.flightMaintStringsIn = flightMaintStringsIn;
+            this.flightMaintStringsOut = flightMaintStringsOut;
+            this.string = string;
+
+            long h = 1;
+            for (int k = cover.columnStart(string); k < cover.columnEnd(string); k++)
+            {
+                h = h * 31 + cover.row(k);
+                h = h * 31 + Double.doubleToLongBits(cover.value(cover.entry(k)));
+            }
+            for (int i = 0; i < flightMaintStringsIn.getRows(); i++)
+            {
+                double in = flightMaintStringsIn.get(i, string);
+                double out = flightMaintStringsOut.get(i, string);
+                if (in != 0 || out != 0)
+                {
+                    h = h * 31 + i;
+                    h = h * 31 + Double.doubleToLongBits(in);
+                    h = h * 31 + Double.doubleToLongBits(out);
+                }
+            }
+            this.hash = (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof StringColumn))
+                return false;
+            StringColumn other = (StringColumn) obj;
+            int j = other.string;
+            if (hash != other.hash)
+                return false;
+
+            int k = cover.columnStart(string);
+            int l = cover.columnStart(j);
+            if (cover.columnEnd(string) - k != cover.columnEnd(j) - l)
+                return false;
+            for (; k < cover.columnEnd(string); k++, l++)
+            {
+                if (cover.row(k) != cover.row(l)
+                        || cover.value(cover.entry(k)) != cover.value(cover.entry(l)))
+                    return false;
+            }
+
+            for (int i = 0; i < flightMaintStringsIn.getRows(); i++)
+            {
+                if (flightMaintStringsIn.get(i, string) != flightMaintStringsIn.get(i, j)
+                        || flightMaintStringsOut.get(i, string) != flightMaintStringsOut.get(i, j))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package cmu.routing.model;
+
+/**
+ *
+ * The type of the variables of a {@link SparseModel}
+ *
+ */
+public enum VariableType
+{
+    /** Variables taking integer values only */
+    INT,
+
+    /** Continuous variables */
+    FLOAT
+}
@@ -5,46 +5,56 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import ilog.concert.IloException;
-import ilog.concert.IloLinearNumExpr;
-import ilog.concert.IloNumExpr;
 import ilog.concert.IloNumVar;
-import ilog.concert.IloNumVarType;
-import ilog.concert.IloObjective;
 import ilog.concert.IloRange;
 import ilog.cplex.IloCplex;
+import cmu.routing.model.CplexLoader;
 import cmu.routing.model.RoutingData;
 import cmu.routing.model.RoutingEquations;
+import cmu.routing.model.SparseModel;
+import cmu.routing.model.SparseRows;
+import cmu.routing.model.VariableType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
 
 public class CCPRoutingEquations implements RoutingEquations
 {
-    private IloNumVar[] x = null;
-    private IloNumVar[] y = null;
-    private IloNumVar[] p = null;
-
-    public CCPRoutingEquations(CCPRoutingData data) throws IloException
+    /* The first column of every variable */
+    private int x;
+    private int y;
+    private int p;
+    private final SparseModel model = new SparseModel();
+    private final CplexLoader loader = new CplexLoader(model);
+
+    public CCPRoutingEquations(CCPRoutingData data)
     {
-        IloCplex cplex = new IloCplex();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
-        int flightLegs = data.getFlightLegs();
-        x = new IloNumVar[strings];
-        y = new IloNumVar[groundArcs];
-        p = new IloNumVar[flightLegs];
-
-        for (int i = 0; i < strings; i++)
-        {
-            x[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-        }
+        addVariables(model, data);
+    }
 
-        for (int i = 0; i < groundArcs; i++)
-        {
-            y[i] = cplex.numVar(0, Double.MAX_VALUE, IloNumVarType.Float);
-        }
+    /* The columns are the same for every model they are added to */
+    private void addVariables(SparseModel model, CCPRoutingData data)
+    {
+        x = model.addColumns(data.getStrings(), 0, 1, VariableType.INT);
+        y = model.addColumns(data.getGroundArcs(), 0, Double.MAX_VALUE,
+                VariableType.FLOAT);
+        p = model.addColumns(data.getFlightLegs(), 0, 1, VariableType.FLOAT);
+    }
 
-        for (int i = 0; i < flightLegs; i++)
-        {
-            p[i] = cplex.numVar(0, 1, IloNumVarType.Float);
-        }
+    @Override
+    public SparseModel buildModel(RoutingData data, int[][] stringsInSolution)
+    {
+        CCPRoutingData ccpData = (CCPRoutingData) data;
+        SparseModel built = new SparseModel();
+        addVariables(built, ccpData);
+        addObjectiveFunction(built, ccpData);
+        addCoverFailureProbConstraint(built, ccpData);
+        addCoverConstraint(built, ccpData);
+        addFlightsInMaintConstraint(built, ccpData);
+        addFlightsOutMaintConstraint(built, ccpData);
+        addCountConstraint(built, ccpData);
+        addVariableConstraint(built, ccpData);
+        addDecisionStringsConstraint(built, ccpData);
+        return built;
     }
 
     @Override
@@ -53,19 +63,8 @@ public class CCPRoutingEquations implements RoutingEquations
     {
         try
         {
-            CCPRoutingData nomData = (CCPRoutingData) data;
-            IloLinearNumExpr expr = cplex.linearNumExpr();
-            IloObjective obj = cplex.addMinimize();
-            double[][] propDelay = nomData.getPropDelay();
-            int strings = nomData.getStrings();
-
-            for (int i = 0; i < strings; i++)
-            {
-                expr.addTerm(propDelay[0][i], x[i]);
-                //expr.addTerm(0, x[i]);
-            }
-
-            obj.setExpr(expr);
+            addObjectiveFunction(model, (CCPRoutingData) data);
+            loader.loadObjective(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding objective function");
@@ -76,6 +75,17 @@ public class CCPRoutingEquations implements RoutingEquations
         System.out.println("Finish setting objective function: " + dateFormat.format(date));
     }
 
+    private void addObjectiveFunction(SparseModel model, CCPRoutingData data)
+    {
+        NumberMatrix propDelay = data.getPropDelay();
+        int strings = data.getStrings();
+
+        for (int i = 0; i < strings; i++)
+        {
+            model.addObjective(x + i, propDelay.get(0, i));
+        }
+    }
+
     @Override
     public void setConstraints(IloCplex cplex, RoutingData data)
             throws IloException
@@ -85,7 +95,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the cover failure probability constraint */
         try
         {
-            setCoverFailureProbConstraint(cplex, ccpData);
+            addCoverFailureProbConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out
@@ -99,7 +110,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the cover constraint */
         try
         {
-            setCoverConstraint(cplex, ccpData);
+            addCoverConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding cover constraint");
@@ -111,7 +123,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the flights in constraint */
         try
         {
-            setFlightsInMaintConstraint(cplex, ccpData);
+            addFlightsInMaintConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights in constraint");
@@ -123,7 +136,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the flights out constraint */
         try
         {
-            setFlightsOutMaintConstraint(cplex, ccpData);
+            addFlightsOutMaintConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights out constraint");
@@ -135,7 +149,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the count constraint */
         try
         {
-            setCountConstraint(cplex, ccpData);
+            addCountConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding count constraint");
@@ -147,7 +162,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the variable constraint */
         try
         {
-            setVariableConstraint(cplex, ccpData);
+            addVariableConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding variable constraint");
@@ -159,7 +175,8 @@ public class CCPRoutingEquations implements RoutingEquations
         /* Add the decision string constraint */
         try
         {
-            setDecisionStringsConstraint(cplex, ccpData);
+            addDecisionStringsConstraint(model, ccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding decision strings constraint");
@@ -169,162 +186,121 @@ public class CCPRoutingEquations implements RoutingEquations
         System.out.println("Finish setting decision strings constraint: " + dateFormat.format(date));
     }
 
-    private void setCoverConstraint(IloCplex cplex, CCPRoutingData data)
-            throws IloException
+    private void addCoverConstraint(SparseModel model, CCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int flightLegs = data.getFlightLegs();
-        double[][] cover = data.getCover();
-        int strings = data.getStrings();
+        final SparseMatrix cover = data.getCover();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(cover[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(cover[i][j], x[j]));
+                /* Only the strings that cover the flight leg are added */
+                rows.addRow(cover, i, 1, x);
+                rows.addRange(1, 1);
             }
-            cplex.addEq(constraint, 1);
-        }
+        });
     }
 
-    private void setCoverFailureProbConstraint(IloCplex cplex,
-            CCPRoutingData data) throws IloException
+    private void addCoverFailureProbConstraint(SparseModel model,
+            CCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int flightLegs = data.getFlightLegs();
-        double[][] coverFailProb = data.getCoverFailureProb();
-        int strings = data.getStrings();
+        final SparseMatrix coverFailProb = data.getCoverFailureProb();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(coverFailProb[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(coverFailProb[i][j], x[j]));
+                /* The probabilities are only kept for the strings covering the flight leg */
+                rows.addRow(coverFailProb, i, 1, x);
+                rows.add(-1, p + i);
+                rows.addRange(-Double.MAX_VALUE, 0);
             }
-            cplex.addLe(constraint, p[i]);
-        }
+        });
     }
 
-    private void setFlightsInMaintConstraint(IloCplex cplex, CCPRoutingData data)
-            throws IloException
+    private void addFlightsInMaintConstraint(SparseModel model,
+            CCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsIn = data.getFlightMaintStringsIn();
-        double[][] flightMaintGroundIn = data.getFlightMaintGroundIn();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsIn = data.getFlightMaintStringsIn();
+        final NumberMatrix flightMaintGroundIn = data.getFlightMaintGroundIn();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsIn[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsIn[i][j], x[j]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundIn[i][j], y[j]));
+                rows.addRow(flightMaintStringsIn, i, x);
+                rows.addRow(flightMaintGroundIn, i, y);
+                rows.addRange(0, 0);
             }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setFlightsOutMaintConstraint(IloCplex cplex,
-            CCPRoutingData data) throws IloException
+    private void addFlightsOutMaintConstraint(SparseModel model,
+            CCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsOut = data.getFlightMaintStringsOut();
-        double[][] flightMaintGroundOut = data.getFlightMaintGroundOut();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsOut = data.getFlightMaintStringsOut();
+        final NumberMatrix flightMaintGroundOut = data.getFlightMaintGroundOut();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsOut[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsOut[i][j], x[j]));
+                rows.addRow(flightMaintStringsOut, i, x);
+                rows.addRow(flightMaintGroundOut, i, y);
+                rows.addRange(0, 0);
             }
-
-            for (int j = 0; j < groundArcs; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundOut[i][j], y[j]));
-            }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setCountConstraint(IloCplex cplex, CCPRoutingData data)
-            throws IloException
+    private void addCountConstraint(SparseModel model, CCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        double[][] countStrings = data.getCountStrings();
-        double[][] countGround = data.getCountGround();
+        NumberMatrix countStrings = data.getCountStrings();
+        NumberMatrix countGround = data.getCountGround();
         int airCrafts = data.getAirCrafts();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
-        constraint = cplex.prod(countStrings[0][0], x[0]);
-        for (int j = 1; j < strings; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countStrings[0][j], x[j]));
-        }
-        for (int j = 0; j < groundArcs; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countGround[0][j], y[j]));
-        }
-        cplex.addLe(constraint, airCrafts);
+        model.addRow(countStrings, 0, x);
+        model.addRow(countGround, 0, y);
+        model.addRange(-Double.MAX_VALUE, airCrafts);
     }
 
-    private void setVariableConstraint(IloCplex cplex, CCPRoutingData data)
-            throws IloException
+    private void addVariableConstraint(SparseModel model, CCPRoutingData data)
     {
         int flightLegs = data.getFlightLegs();
 
         for (int i = 0; i < flightLegs; i++)
         {
-            cplex.addLe(p[i], 0.52); //0.1 means 10% probability of delay exceeding 90 minutes.
+            model.add(1, p + i);
+            model.addRange(-Double.MAX_VALUE, 0.52); //0.1 means 10% probability of delay exceeding 90 minutes.
         }
     }
     
-    private void setDecisionStringsConstraint(IloCplex cplex,
-            CCPRoutingData data) throws IloException
+    private void addDecisionStringsConstraint(SparseModel model,
+            CCPRoutingData data)
     {
-        /*double[][] stringsInSolution = data.getStringsInSolution();
+        /*int[] stringsInSolution = data.getStringsInSolution();
         int strings = data.getStrings();
 
         for (int i = 1; i < strings; i++)
         {
-            if (stringsInSolution[0][i] == -1)
+            if (stringsInSolution[i] == -1)
                 break;
-            if (stringsInSolution[0][i] - stringsInSolution[0][i - 1] > 1)
+            if (stringsInSolution[i] - stringsInSolution[i - 1] > 1)
             {
-                for (int j = (int) stringsInSolution[0][i - 1]; j < (int) stringsInSolution[0][i] - 1; j++)
+                for (int j = stringsInSolution[i - 1]; j < stringsInSolution[i] - 1; j++)
                 {
-                    cplex.addEq(x[j], 0);
+                    model.add(1, x + j);
+                    model.addRange(0, 0);
                 }
             }
         }*/
     }
     public IloNumVar[] getX()
     {
-        return x;
+        /* The strings take the columns up to the ground arcs */
+        return loader.getVariables(x, y - x);
     }
 
 	@Override
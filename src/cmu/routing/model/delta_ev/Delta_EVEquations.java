@@ -4,14 +4,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Scanner;
 
+import cmu.routing.model.CplexLoader;
 import cmu.routing.model.RoutingData;
 import cmu.routing.model.RoutingEquations;
+import cmu.routing.model.SparseModel;
+import cmu.routing.model.SparseRows;
+import cmu.routing.model.VariableType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
 import ilog.concert.IloException;
-import ilog.concert.IloLinearNumExpr;
-import ilog.concert.IloNumExpr;
 import ilog.concert.IloNumVar;
-import ilog.concert.IloNumVarType;
-import ilog.concert.IloObjective;
 import ilog.concert.IloRange;
 import ilog.cplex.IloCplex;
 
@@ -23,36 +25,46 @@ import ilog.cplex.IloCplex;
  */
 public class Delta_EVEquations implements RoutingEquations
 {
-    private IloNumVar[] x = null;
-    private IloNumVar[] y = null;
+    /* The first column of every variable */
+    private int x;
+    private int y;
+    private final SparseModel model = new SparseModel();
+    private final CplexLoader loader = new CplexLoader(model);
 
     /**
      * 
-     * The constructor creates the variables and sets the range of each variable
+     * The constructor adds the variables to the model and sets the range of
+     * each variable
      * 
      * @param data
      *            Object containing the routing data
-     * @throws IloException
-     *             Thrown when any error creating IloCplex object
      */
-    public Delta_EVEquations(Delta_EVData data) throws IloException
+    public Delta_EVEquations(Delta_EVData data)
     {
-        IloCplex cplex = new IloCplex();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
-        int flightLegs = data.getFlightLegs();
-        x = new IloNumVar[strings];
-        y = new IloNumVar[groundArcs];
-        
-        for (int i = 0; i < strings; i++)
-        {
-            x[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-        }
+        addVariables(model, data);
+    }
 
-        for (int i = 0; i < groundArcs; i++)
-        {
-            y[i] = cplex.numVar(0, Double.MAX_VALUE, IloNumVarType.Float);
-        }
+    /* The columns are the same for every model they are added to */
+    private void addVariables(SparseModel model, Delta_EVData data)
+    {
+        x = model.addColumns(data.getStrings(), 0, 1, VariableType.INT);
+        y = model.addColumns(data.getGroundArcs(), 0, Double.MAX_VALUE,
+                VariableType.FLOAT);
+    }
+
+    @Override
+    public SparseModel buildModel(RoutingData data, int[][] stringsInSolution)
+    {
+        Delta_EVData nomData = (Delta_EVData) data;
+        SparseModel built = new SparseModel();
+        addVariables(built, nomData);
+        addObjectiveFunction(built, nomData);
+        addnewcostraints(built, nomData);
+        addCoverConstraint(built, nomData);
+        addFlightsInMaintConstraint(built, nomData);
+        addFlightsOutMaintConstraint(built, nomData);
+        addCountConstraint(built, nomData);
+        return built;
     }
 
     @Override
@@ -61,23 +73,8 @@ public class Delta_EVEquations implements RoutingEquations
     {
         try
         {
-        	Delta_EVData nomData = (Delta_EVData) data;
-            IloLinearNumExpr expr = cplex.linearNumExpr();
-            //IloObjective obj = cplex.addMinimize();
-            IloObjective obj = cplex.addMaximize();
-            int strings = nomData.getStrings();
-            int flightLegs = nomData.getFlightLegs();
-            double coverHatValues[][] = nomData.getCoverHatValue();
-
-            for (int i = 0; i < strings; i++)
-            {
-            	 for (int j = 0; j < flightLegs; j++)
-                 {
-                 expr.addTerm(coverHatValues[j][i], x[i]);
-                 }
-            }
-
-            obj.setExpr(expr);
+            addObjectiveFunction(model, (Delta_EVData) data);
+            loader.loadObjective(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding objective function");
@@ -85,17 +82,33 @@ public class Delta_EVEquations implements RoutingEquations
         }
     }
 
+    private void addObjectiveFunction(SparseModel model, Delta_EVData data)
+    {
+        model.setMaximize(true);
+        int strings = data.getStrings();
+        SparseMatrix coverHatValues = data.getCoverHatValue();
+
+        for (int i = 0; i < strings; i++)
+        {
+            for (int k = coverHatValues.columnStart(i); k < coverHatValues.columnEnd(i); k++)
+            {
+                model.addObjective(x + i, coverHatValues.value(coverHatValues.entry(k)));
+            }
+        }
+    }
+
     @Override
     public void setConstraints(IloCplex cplex, RoutingData data)
             throws IloException
     {
     	Delta_EVData nomData = (Delta_EVData) data;
         /* Add the cover constraint */
-        addnewcostraints(cplex, nomData);
+        addnewcostraints(model, nomData);
 
         try
         {
-            setCoverConstraint(cplex, nomData);
+            addCoverConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding cover constraint");
@@ -105,7 +118,8 @@ public class Delta_EVEquations implements RoutingEquations
         /* Add the flights in constraint */
         try
         {
-            setFlightsInMaintConstraint(cplex, nomData);
+            addFlightsInMaintConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights in constraint");
@@ -115,7 +129,8 @@ public class Delta_EVEquations implements RoutingEquations
         /* Add the flights out constraint */
         try
         {
-            setFlightsOutMaintConstraint(cplex, nomData);
+            addFlightsOutMaintConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights out constraint");
@@ -125,7 +140,8 @@ public class Delta_EVEquations implements RoutingEquations
         /* Add the count constraint */
         try
         {
-            setCountConstraint(cplex, nomData);
+            addCountConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding count constraint");
@@ -144,116 +160,77 @@ public class Delta_EVEquations implements RoutingEquations
 
     }
 
-    private void setCoverConstraint(IloCplex cplex, Delta_EVData data)
-            throws IloException
+    private void addCoverConstraint(SparseModel model, Delta_EVData data)
     {
-        IloNumExpr constraint = null;
-        int flightLegs = data.getFlightLegs();
-        double[][] cover = data.getCover();
-        int strings = data.getStrings();
+        final SparseMatrix cover = data.getCover();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(cover[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(cover[i][j], x[j]));
+                /* Only the strings that cover the flight leg are added */
+                rows.addRow(cover, i, 1, x);
+                rows.addRange(1, Double.MAX_VALUE);
             }
-            cplex.addGe(constraint, 1);
-        }
+        });
     }
 
-    private void setFlightsInMaintConstraint(IloCplex cplex,
-    		Delta_EVData data) throws IloException
+    private void addFlightsInMaintConstraint(SparseModel model,
+    		Delta_EVData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsIn = data.getFlightMaintStringsIn();
-        double[][] flightMaintGroundIn = data.getFlightMaintGroundIn();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsIn = data.getFlightMaintStringsIn();
+        final NumberMatrix flightMaintGroundIn = data.getFlightMaintGroundIn();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsIn[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsIn[i][j], x[j]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundIn[i][j], y[j]));
+                rows.addRow(flightMaintStringsIn, i, x);
+                rows.addRow(flightMaintGroundIn, i, y);
+                rows.addRange(0, 0);
             }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setFlightsOutMaintConstraint(IloCplex cplex,
-    		Delta_EVData data) throws IloException
+    private void addFlightsOutMaintConstraint(SparseModel model,
+    		Delta_EVData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsOut = data.getFlightMaintStringsOut();
-        double[][] flightMaintGroundOut = data.getFlightMaintGroundOut();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsOut = data.getFlightMaintStringsOut();
+        final NumberMatrix flightMaintGroundOut = data.getFlightMaintGroundOut();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsOut[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsOut[i][j], x[j]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundOut[i][j], y[j]));
+                rows.addRow(flightMaintStringsOut, i, x);
+                rows.addRow(flightMaintGroundOut, i, y);
+                rows.addRange(0, 0);
             }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setCountConstraint(IloCplex cplex, Delta_EVData data)
-            throws IloException
+    private void addCountConstraint(SparseModel model, Delta_EVData data)
     {
-        IloNumExpr constraint = null;
-        double[][] countStrings = data.getCountStrings();
-        double[][] countGround = data.getCountGround();
+        NumberMatrix countStrings = data.getCountStrings();
+        NumberMatrix countGround = data.getCountGround();
         int airCrafts = data.getAirCrafts();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
 
-        constraint = cplex.prod(countStrings[0][0], x[0]);
-        for (int j = 1; j < strings; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countStrings[0][j], x[j]));
-        }
-        for (int j = 0; j < groundArcs; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countGround[0][j], y[j]));
-        }
-        cplex.addLe(constraint, airCrafts);
+        model.addRow(countStrings, 0, x);
+        model.addRow(countGround, 0, y);
+        model.addRange(-Double.MAX_VALUE, airCrafts);
     }
     
-    private void addnewcostraints(IloCplex cplex, Delta_EVData data) throws IloException{
+    private void addnewcostraints(SparseModel model, Delta_EVData data){
 
     }
     
     public IloNumVar[] getX()
     {
-        return x;
+        /* The strings take the columns up to the ground arcs */
+        return loader.getVariables(x, y - x);
     }
 
 	@Override
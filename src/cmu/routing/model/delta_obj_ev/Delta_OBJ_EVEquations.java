@@ -5,21 +5,31 @@ import java.io.FileNotFoundException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Scanner;
 
 import ilog.concert.*;
 import ilog.cplex.*;
+import cmu.routing.model.CplexLoader;
 import cmu.routing.model.RoutingData;
 import cmu.routing.model.RoutingEquations;
+import cmu.routing.model.SparseModel;
+import cmu.routing.model.SparseRows;
+import cmu.routing.model.VariableType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
 
 public class Delta_OBJ_EVEquations implements RoutingEquations
 {
-    private IloNumVar[] x = null;
-    private IloNumVar[] y = null;
-    private IloNumVar[] v = null;
-    private IloNumVar[] w = null;
-    private IloNumVar[] DELTA = null;
+    /* The first column of every variable */
+    private int x;
+    private int y;
+    private int v;
+    private int w;
+    private int DELTA;
+    private final SparseModel model = new SparseModel();
+    private final CplexLoader loader = new CplexLoader(model);
     ArrayList<IloRange> constraints233 = new ArrayList<IloRange>();
     ArrayList<IloRange> constraints234 = new ArrayList<IloRange>();
     ArrayList<IloRange> constraints235 = new ArrayList<IloRange>();
@@ -40,48 +50,53 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
 
     /**
      * 
-     * The constructor creates the variables and sets the range of each variable
+     * The constructor adds the variables to the model and sets the range of
+     * each variable
      * 
      * @param dobjevData
      *            Object containing the routing data
-     * @throws IloException
-     *             Thrown when any error creating IloCplex object
      */
-    public Delta_OBJ_EVEquations(Delta_OBJ_EVData dobjevData) throws IloException
+    public Delta_OBJ_EVEquations(Delta_OBJ_EVData dobjevData)
     {
-        
-        IloCplex cplex = new IloCplex();
-        int strings = dobjevData.getStrings();
-        int groundArcs = dobjevData.getGroundArcs();
-        x = new IloNumVar[strings];
-        y = new IloNumVar[groundArcs];
-        v = new IloNumVar[strings];
-        w = new IloNumVar[strings];
-        DELTA = new IloNumVar[1];
+        addVariables(model, dobjevData);
+    }
 
-        for (int i = 0; i < strings; i++)
-        {
-            //x[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-            x[i] = cplex.numVar(0, Double.MAX_VALUE, IloNumVarType.Int);
-        }
+    /* The columns are the same for every model they are added to */
+    private void addVariables(SparseModel model, Delta_OBJ_EVData data)
+    {
+        int strings = data.getStrings();
 
-        for (int i = 0; i < groundArcs; i++)
-        {
-            y[i] = cplex.numVar(0, Double.MAX_VALUE, IloNumVarType.Float);
-        }
-        
-        for (int i = 0; i < strings; i++)
-        {
-            v[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-        }
-        
-        for (int i = 0; i < strings; i++)
-        {
-            //w[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-            w[i] = cplex.numVar(0, 1, IloNumVarType.Float);
-        }
-        
-        DELTA[0] = cplex.numVar(-Double.MAX_VALUE, Double.MAX_VALUE, IloNumVarType.Float);
+        //x = model.addColumns(strings, 0, 1, VariableType.INT);
+        x = model.addColumns(strings, 0, Double.MAX_VALUE, VariableType.INT);
+        y = model.addColumns(data.getGroundArcs(), 0, Double.MAX_VALUE,
+                VariableType.FLOAT);
+        v = model.addColumns(strings, 0, 1, VariableType.INT);
+        //w = model.addColumns(strings, 0, 1, VariableType.INT);
+        w = model.addColumns(strings, 0, 1, VariableType.FLOAT);
+        DELTA = model.addColumns(1, -Double.MAX_VALUE, Double.MAX_VALUE,
+                VariableType.FLOAT);
+    }
+
+    @Override
+    public SparseModel buildModel(RoutingData data, int[][] stringsInSolution)
+    {
+        Delta_OBJ_EVData devData = (Delta_OBJ_EVData) data;
+        SparseModel built = new SparseModel();
+        addVariables(built, devData);
+        addObjectiveFunction(built);
+        addBoundX(built, devData);
+        addnewcostraints(built, devData);
+        addFlightsInMaintConstraint(built, devData, stringsInSolution);
+        addFlightsOutMaintConstraint(built, devData, stringsInSolution);
+        addCountConstraint(built, devData, stringsInSolution);
+        addCoverConstraint(built, devData, stringsInSolution);
+        add233Constraint(built, devData, stringsInSolution);
+        add234Constraint(built, devData);
+        add235Constraint(built, devData, stringsInSolution);
+        add236Constraint(built, devData);
+        add237Constraint(built, devData, stringsInSolution);
+        add238Constraint(built, devData);
+        return built;
     }
 
     @Override
@@ -90,10 +105,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
     {
         try
         {
-            IloLinearNumExpr expr = cplex.linearNumExpr();
-            IloObjective obj = cplex.addMinimize();
-            expr.addTerm(1, DELTA[0]);
-            obj.setExpr(expr);
+            addObjectiveFunction(model);
+            loader.loadObjective(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding objective function");
@@ -104,6 +117,11 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         System.out.println("Finish setting objective function: " + dateFormat.format(date));
     }
 
+    private void addObjectiveFunction(SparseModel model)
+    {
+        model.addObjective(DELTA, 1);
+    }
+
     @Override
     public void setConstraints(IloCplex cplex, RoutingData data, int[][] stringsInSolution)
             throws IloException
@@ -113,11 +131,16 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         setObjectiveFunction(cplex, devData);
         
         
-        addnewcostraints(cplex, devData);
+        addBoundX(model, devData);
+        Collections.addAll(boundX, loader.loadRows(cplex));
+        System.out.println("size of boundX: " + boundX.size());
+        addnewcostraints(model, devData);
+        loader.loadRows(cplex);
         /* Add the flights in constraint */
         try
         {
-            setFlightsInMaintConstraint(cplex, devData, stringsInSolution);
+            addFlightsInMaintConstraint(model, devData, stringsInSolution);
+            Collections.addAll(flightsInConstraintsEqual, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights in constraint");
@@ -130,7 +153,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         /* Add the flights out constraint */
         try
         {
-            setFlightsOutMaintConstraint(cplex, devData, stringsInSolution);
+            addFlightsOutMaintConstraint(model, devData, stringsInSolution);
+            Collections.addAll(flightsOutConstraintsEqual, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights out constraint");
@@ -142,7 +166,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         /* Add the count constraint */
         try
         {
-            setCountConstraint(cplex, devData, stringsInSolution);
+            addCountConstraint(model, devData, stringsInSolution);
+            Collections.addAll(countConstraints, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding count constraint");
@@ -154,7 +179,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         /* Add the cover hat value constraint */
         try
         {
-            setCoverConstraint(cplex, devData, stringsInSolution);
+            addCoverConstraint(model, devData, stringsInSolution);
+            Collections.addAll(coverConstraintsEqual, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding cover constraint");
@@ -165,7 +191,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         
         try
         {
-            set233Constraint(cplex, devData, stringsInSolution);
+            add233Constraint(model, devData, stringsInSolution);
+            Collections.addAll(constraints233, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding 2.33 constraint");
@@ -176,7 +203,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         
         try
         {
-            set234Constraint(cplex, devData);
+            add234Constraint(model, devData);
+            Collections.addAll(constraints234, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding 2.34 constraint");
@@ -187,7 +215,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         
         try
         {
-            set235Constraint(cplex, devData, stringsInSolution);
+            add235Constraint(model, devData, stringsInSolution);
+            Collections.addAll(constraints235, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding 2.35 constraint");
@@ -198,7 +227,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         
         try
         {
-            set236Constraint(cplex, devData);
+            add236Constraint(model, devData);
+            Collections.addAll(constraints236, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding 2.36 constraint");
@@ -209,7 +239,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         
         try
         {
-            set237Constraint(cplex, devData, stringsInSolution);
+            add237Constraint(model, devData, stringsInSolution);
+            Collections.addAll(constraints237, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding 2.37 constraint");
@@ -220,7 +251,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         
         try
         {
-            set238Constraint(cplex, devData);
+            add238Constraint(model, devData);
+            Collections.addAll(constraints238, loader.loadRows(cplex));
         } catch (IloException ioe)
         {
             System.out.println("Error in adding 2.38 constraint");
@@ -231,236 +263,219 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
 
     }
 
-    private void setFlightsInMaintConstraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void addFlightsInMaintConstraint(SparseModel model, Delta_OBJ_EVData data, final int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        double[][] flightMaintStringsIn = data.getFlightMaintStringsIn();
-        double[][] flightMaintGroundIn = data.getFlightMaintGroundIn();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        final NumberMatrix flightMaintStringsIn = data.getFlightMaintStringsIn();
+        final NumberMatrix flightMaintGroundIn = data.getFlightMaintGroundIn();
+        final int strings = data.getStrings();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsIn[i][(int)stringsSortedAsHats[0][0]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][0]-1], x[(int)stringsSortedAsHats[0][0]-1]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsIn[i][(int)stringsSortedAsHats[0][j]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][j]-1], x[(int)stringsSortedAsHats[0][j]-1]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundIn[i][j], y[j]));
+                for (int j = 0; j < strings; j++)
+                {
+                    int string = stringsSortedAsHats[j] - 1;
+                    rows.add(flightMaintStringsIn.get(i, string) * stringsInSolution[0][string], x + string);
+                }
+                rows.addRow(flightMaintGroundIn, i, y);
+                rows.addRange(0, 0);
             }
-            flightsInConstraintsEqual.add(cplex.addEq(constraint, 0));
-        }
+        });
     }
 
-    private void setFlightsOutMaintConstraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void addFlightsOutMaintConstraint(SparseModel model, Delta_OBJ_EVData data, final int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsOut = data.getFlightMaintStringsOut();
-        double[][] flightMaintGroundOut = data.getFlightMaintGroundOut();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsOut = data.getFlightMaintStringsOut();
+        final NumberMatrix flightMaintGroundOut = data.getFlightMaintGroundOut();
+        final int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        final int strings = data.getStrings();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsOut[i][(int)stringsSortedAsHats[0][0]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][0]-1], x[(int)stringsSortedAsHats[0][0]-1]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsOut[i][(int)stringsSortedAsHats[0][j]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][j]-1], x[(int)stringsSortedAsHats[0][j]-1]));
+                for (int j = 0; j < strings; j++)
+                {
+                    int string = stringsSortedAsHats[j] - 1;
+                    rows.add(flightMaintStringsOut.get(i, string) * stringsInSolution[0][string], x + string);
+                }
+                rows.addRow(flightMaintGroundOut, i, y);
+                rows.addRange(0, 0);
             }
-
-            for (int j = 0; j < groundArcs; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundOut[i][j], y[j]));
-            }
-            flightsOutConstraintsEqual.add(cplex.addEq(constraint, 0));
-        }
+        });
     }
 
-    private void setCountConstraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void addCountConstraint(SparseModel model, Delta_OBJ_EVData data, int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        double[][] countStrings = data.getCountStrings();
-        double[][] countGround = data.getCountGround();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
+        NumberMatrix countStrings = data.getCountStrings();
+        NumberMatrix countGround = data.getCountGround();
+        int[] stringsSortedAsHats = data.getStringsSortedAsHats();
         int airCrafts = data.getAirCrafts();
         int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
 
-        constraint = cplex.prod(countStrings[0][(int)stringsSortedAsHats[0][0]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][0]-1], x[(int)stringsSortedAsHats[0][0]-1]);
-        for (int j = 1; j < strings; j++)
+        for (int j = 0; j < strings; j++)
         {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countStrings[0][(int)stringsSortedAsHats[0][j]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][j]-1], x[(int)stringsSortedAsHats[0][j]-1]));
+            int string = stringsSortedAsHats[j] - 1;
+            model.add(countStrings.get(0, string) * stringsInSolution[0][string], x + string);
         }
-        for (int j = 0; j < groundArcs; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countGround[0][j], y[j]));
-        }
-        countConstraints.add(cplex.addLe(constraint, airCrafts));
+        model.addRow(countGround, 0, y);
+        model.addRange(-Double.MAX_VALUE, airCrafts);
     }
 
-    private void setCoverConstraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void addCoverConstraint(SparseModel model, Delta_OBJ_EVData data, final int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        double[][] cover = data.getCover();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        int strings = data.getStrings();
-        int flightLegs = data.getFlightLegs();
+        final SparseMatrix cover = data.getCover();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(cover[i][(int)stringsSortedAsHats[0][0]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][0]-1], x[(int)stringsSortedAsHats[0][0]-1]);
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(
-                        constraint, cplex.prod(cover[i][(int)stringsSortedAsHats[0][j]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][j]-1], x[(int)stringsSortedAsHats[0][j]-1]));
+                /* Only the strings that cover the flight leg are added */
+                for (int k = cover.rowStart(i); k < cover.rowEnd(i); k++)
+                {
+                    int j = cover.column(k);
+                    rows.add(cover.value(k) * stringsInSolution[0][j], x + j);
+                }
+                rows.addRange(1, 1);
             }
-            coverConstraintsEqual.add(cplex.addEq(constraint, 1));
-        }
+        });
     }
     
-    private void set233Constraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void add233Constraint(SparseModel model, Delta_OBJ_EVData data, int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        IloNumExpr constraint2 = null;
-        double[][] extremeValues = data.getExtremeValues();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
+        NumberMatrix extremeValues = data.getExtremeValues();
+        int[] stringsSortedAsHats = data.getStringsSortedAsHats();
         int strings = data.getStrings();
 
-        constraint = 
-                cplex.prod ((int) extremeValues[0][(int)stringsSortedAsHats[0][0]-1], x[(int)stringsSortedAsHats[0][0]-1]);
-        
-        constraint2 =
-                cplex.prod ((int) - extremeValues[0][(int)stringsSortedAsHats[0][0]-1], v[(int)stringsSortedAsHats[0][0]-1]);
+        /* The first string is also added once without its solution value */
+        int first = stringsSortedAsHats[0] - 1;
+        model.add((int) extremeValues.get(0, first), x + first);
+        model.add((int) - extremeValues.get(0, first), v + first);
         for (int i = 0; i < strings; i++)
         {
-            constraint = cplex.sum(constraint, cplex.prod ((int) extremeValues[0][(int)stringsSortedAsHats[0][i]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][i]-1], x[(int)stringsSortedAsHats[0][i]-1]));
-            constraint2 = cplex.sum(constraint2, cplex.prod ((int) - extremeValues[0][(int)stringsSortedAsHats[0][i]-1] * stringsInSolution[0][(int)stringsSortedAsHats[0][i]-1], v[(int)stringsSortedAsHats[0][i]-1]));
+            int string = stringsSortedAsHats[i] - 1;
+            model.add((int) extremeValues.get(0, string) * stringsInSolution[0][string], x + string);
+            model.add((int) - extremeValues.get(0, string) * stringsInSolution[0][string], v + string);
         }
-        constraint = cplex.sum(constraint, constraint2);
-        constraints233.add(cplex.addLe(constraint, 90));
+        model.addRange(-Double.MAX_VALUE, 90);
     }
     
-    private void set234Constraint(IloCplex cplex, Delta_OBJ_EVData data)
-            throws IloException
+    private void add234Constraint(SparseModel model, Delta_OBJ_EVData data)
     {
-        IloNumExpr constraint = null;
         int strings = data.getStrings();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        constraint = cplex.prod(1, DELTA[0]);
+        int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        model.add(1, DELTA);
         for (int i = 0; i < strings; i++)
         {
-            constraint = cplex.diff(constraint, v[(int)stringsSortedAsHats[0][i]-1]);
+            model.add(-1, v + stringsSortedAsHats[i]-1);
         }
-        constraints234.add(cplex.addGe(constraint, 0));
+        model.addRange(0, Double.MAX_VALUE);
     }
     
-    private void set235Constraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void add235Constraint(SparseModel model, Delta_OBJ_EVData data, final int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        int strings = data.getStrings();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        double[][] extremeValues = data.getExtremeValues();
-        for (int i = 0; i < strings; i++)
+        final int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        final NumberMatrix extremeValues = data.getExtremeValues();
+        model.addRows(data.getStrings(), new SparseModel.RowGenerator()
         {
-            if (extremeValues[0][(int)stringsSortedAsHats[0][i]-1] != 0){
-                constraint = cplex.diff( cplex.prod(stringsInSolution[0][(int)stringsSortedAsHats[0][i]-1], x[(int)stringsSortedAsHats[0][i]-1]), v[(int)stringsSortedAsHats[0][i]-1]);
-                constraints235.add(cplex.addGe(constraint, 0));
+            @Override
+            public void addRows(int i, SparseRows rows)
+            {
+                int string = stringsSortedAsHats[i] - 1;
+                if (extremeValues.get(0, string) != 0){
+                    rows.add(stringsInSolution[0][string], x + string);
+                    rows.add(-1, v + string);
+                    rows.addRange(0, Double.MAX_VALUE);
+                }
             }
-        }
+        });
     }
     
-    private void set236Constraint(IloCplex cplex, Delta_OBJ_EVData data)
-            throws IloException
+    private void add236Constraint(SparseModel model, Delta_OBJ_EVData data)
     {
-        IloNumExpr constraint = null;
-        int strings = data.getStrings();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        double[][] extremeValues = data.getExtremeValues();
-        for (int i = 0; i < strings; i++)
+        final int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        final NumberMatrix extremeValues = data.getExtremeValues();
+        model.addRows(data.getStrings(), new SparseModel.RowGenerator()
         {
-            if (extremeValues[0][(int)stringsSortedAsHats[0][i]-1] != 0){
-                constraint = cplex.diff(w[(int)stringsSortedAsHats[0][i]-1], v[(int)stringsSortedAsHats[0][i]-1]);
-                constraints236.add(cplex.addGe(constraint, 0));
+            @Override
+            public void addRows(int i, SparseRows rows)
+            {
+                int string = stringsSortedAsHats[i] - 1;
+                if (extremeValues.get(0, string) != 0){
+                    rows.add(1, w + string);
+                    rows.add(-1, v + string);
+                    rows.addRange(0, Double.MAX_VALUE);
+                }
             }
-        }
+        });
     }
     
-    private void set237Constraint(IloCplex cplex, Delta_OBJ_EVData data, int[][] stringsInSolution)
-            throws IloException
+    private void add237Constraint(SparseModel model, Delta_OBJ_EVData data, final int[][] stringsInSolution)
     {
-        IloNumExpr constraint = null;
-        int strings = data.getStrings();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        double[][] extremeValues = data.getExtremeValues();
-        for (int i = 0; i < strings; i++)
+        final int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        final NumberMatrix extremeValues = data.getExtremeValues();
+        model.addRows(data.getStrings(), new SparseModel.RowGenerator()
         {
-            if (extremeValues[0][(int)stringsSortedAsHats[0][i]-1] != 0){
-                constraint = cplex.diff(cplex.prod(stringsInSolution[0][(int)stringsSortedAsHats[0][i]-1], x[(int)stringsSortedAsHats[0][i]-1]), v[(int)stringsSortedAsHats[0][i]-1]);
-                constraint = cplex.sum(constraint, w[(int)stringsSortedAsHats[0][i]-1]);
-                constraints237.add(cplex.addLe(constraint, 1));
+            @Override
+            public void addRows(int i, SparseRows rows)
+            {
+                int string = stringsSortedAsHats[i] - 1;
+                if (extremeValues.get(0, string) != 0){
+                    rows.add(stringsInSolution[0][string], x + string);
+                    rows.add(-1, v + string);
+                    rows.add(1, w + string);
+                    rows.addRange(-Double.MAX_VALUE, 1);
+                }
             }
-        }
+        });
     }
     
-    private void set238Constraint(IloCplex cplex, Delta_OBJ_EVData data)
-            throws IloException
+    private void add238Constraint(SparseModel model, Delta_OBJ_EVData data)
     {
-        IloNumExpr constraint = null;
         int strings = data.getStrings();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        double[][] extremeValues = data.getExtremeValues();
+        int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        NumberMatrix extremeValues = data.getExtremeValues();
         int sHat = 0;
         for (int i = 0; i < strings; i++)
         {
-            if (extremeValues[0][(int)stringsSortedAsHats[0][i]-1] != 0){
+            if (extremeValues.get(0, stringsSortedAsHats[i]-1) != 0){
                 sHat++;
             }
         }
         
         for (int i = strings - sHat + 1; i < strings - 1; i++)
         {
-            constraint = cplex.diff(w[(int)stringsSortedAsHats[0][i]-1], w[(int)stringsSortedAsHats[0][i+1]-1]); 
-            constraints238.add(cplex.addGe(constraint, 0));
+            model.add(1, w + stringsSortedAsHats[i]-1);
+            model.add(-1, w + stringsSortedAsHats[i+1]-1);
+            model.addRange(0, Double.MAX_VALUE);
         }
     }
     
-    private void addnewcostraints(IloCplex cplex, Delta_OBJ_EVData data) throws IloException{
-    	int strings = data.getStrings();
-        double[][] stringsSortedAsHats = data.getStringsSortedAsHats();
-        double[][] stringsInSolution = data.getStringsInSolution();
+    private void addBoundX(SparseModel model, Delta_OBJ_EVData data)
+    {
+        int strings = data.getStrings();
         for (int i = 0; i < strings; i++)
         {
-            boundX.add(cplex.addLe(x[i], 1));
-            
+            model.add(1, x + i);
+            model.addRange(-Double.MAX_VALUE, 1);
         }
-        System.out.println("size of boundX: " + boundX.size());
-        int [] route_days = new int [878207];
+    }
+
+    private void addnewcostraints(SparseModel model, Delta_OBJ_EVData data){
+    	int strings = data.getStrings();
+        int[] stringsSortedAsHats = data.getStringsSortedAsHats();
+        int[] stringsInSolution = data.getStringsInSolution();
+        int [] route_days = new int [strings];
     	File file = new File ("B735_Condensed_Real_Strings_modified.dat");
         Scanner inputStreamroute;
 		try {
 			inputStreamroute = new Scanner(file).useDelimiter("\n|\\t");
-			 System.out.println(inputStreamroute.next());
+			inputStreamroute.next();
 				String titleline = inputStreamroute.next();
 				titleline = inputStreamroute.next();
 				titleline = inputStreamroute.next();
@@ -468,8 +483,8 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
 				titleline = inputStreamroute.next();
 				titleline = inputStreamroute.next();
 				int days = 0;
-				while (inputStreamroute.hasNext()) {
-					System.out.println(inputStreamroute.next());
+				while (days < strings && inputStreamroute.hasNext()) {
+					inputStreamroute.next();
 					String days_data = inputStreamroute.next();
 					days_data = inputStreamroute.next();
 					days_data = inputStreamroute.next();
@@ -484,32 +499,34 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
 					days++;
 				}
 		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
 
         for (int i = 0; i < strings; i++)
         {
         	if (route_days[i] == 3){
-        		cplex.addEq(x[i], 0);
+        		model.add(1, x + i);
+        		model.addRange(0, 0);
         	}
         }
 //        for (int i = 1; i < strings; i++)
 //        {
-//            if (stringsInSolution[0][i] == -1)
+//            if (stringsInSolution[i] == -1)
 //                break;
-//            if (stringsInSolution[0][i] - stringsInSolution[0][i - 1] > 1)
+//            if (stringsInSolution[i] - stringsInSolution[i - 1] > 1)
 //            {
-//                for (int j = (int) stringsInSolution[0][i - 1]; j < (int) stringsInSolution[0][i] - 1; j++)
+//                for (int j = stringsInSolution[i - 1]; j < stringsInSolution[i] - 1; j++)
 //                {
-//                    cplex.addEq(x[j], 0);
+//                    model.add(1, x + j);
+//                    model.addRange(0, 0);
 //                }
 //            }
 //        }
     }
     public IloNumVar[] getX()
     {
-        return x;
+        /* The strings take the columns up to the ground arcs */
+        return loader.getVariables(x, y - x);
     }
     public IloRange[] getCoverConstraints1()
     {
@@ -608,11 +625,12 @@ public class Delta_OBJ_EVEquations implements RoutingEquations
         return temp;
     }
 
+	/* The constraints of the model are always added for the strings in the solution */
 	@Override
 	public void setConstraints(IloCplex cplex, RoutingData data)
 			throws IloException {
-		// TODO Auto-generated method stub
-		
+		throw new UnsupportedOperationException(
+				"The Delta_OBJ_EV constraints need the strings in the solution");
 	}
 
 	@Override
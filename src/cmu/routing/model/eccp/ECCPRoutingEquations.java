@@ -1,51 +1,61 @@
 package cmu.routing.model.eccp;
 
 import ilog.concert.IloException;
-import ilog.concert.IloLinearNumExpr;
-import ilog.concert.IloNumExpr;
 import ilog.concert.IloNumVar;
-import ilog.concert.IloNumVarType;
-import ilog.concert.IloObjective;
 import ilog.concert.IloRange;
 import ilog.cplex.IloCplex;
+import cmu.routing.model.CplexLoader;
 import cmu.routing.model.RoutingData;
 import cmu.routing.model.RoutingEquations;
+import cmu.routing.model.SparseModel;
+import cmu.routing.model.SparseRows;
+import cmu.routing.model.VariableType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
 import cmu.routing.model.nominal.NominalRoutingData;
 
 public class ECCPRoutingEquations implements RoutingEquations
 {
-    private IloNumVar[] x = null;
-    private IloNumVar[] y = null;
-    private IloNumVar[] p = null;
-    private IloNumVar maxFlightFailProb = null;
-
-    public ECCPRoutingEquations(ECCPRoutingData data) throws IloException
+    /* The first column of every variable */
+    private int x;
+    private int y;
+    private int p;
+    private int maxFlightFailProb;
+    private final SparseModel model = new SparseModel();
+    private final CplexLoader loader = new CplexLoader(model);
+
+    public ECCPRoutingEquations(ECCPRoutingData data)
     {
-        IloCplex cplex = new IloCplex();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
-        int flightLegs = data.getFlightLegs();
-        x = new IloNumVar[strings];
-        y = new IloNumVar[groundArcs];
-        p = new IloNumVar[flightLegs];
-
-        for (int i = 0; i < strings; i++)
-        {
-            x[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-        }
-
-        for (int i = 0; i < groundArcs; i++)
-        {
-            y[i] = cplex.numVar(0, Double.MAX_VALUE, IloNumVarType.Float);
-        }
+        addVariables(model, data);
+    }
 
-        for (int i = 0; i < flightLegs; i++)
-        {
-            p[i] = cplex.numVar(0, 1, IloNumVarType.Float);
-        }
+    /* The columns are the same for every model they are added to */
+    private void addVariables(SparseModel model, ECCPRoutingData data)
+    {
+        x = model.addColumns(data.getStrings(), 0, 1, VariableType.INT);
+        y = model.addColumns(data.getGroundArcs(), 0, Double.MAX_VALUE,
+                VariableType.FLOAT);
+        p = model.addColumns(data.getFlightLegs(), 0, 1, VariableType.FLOAT);
+        maxFlightFailProb = model.addColumns(1, 0, Double.MAX_VALUE,
+                VariableType.FLOAT);
+    }
 
-        maxFlightFailProb = cplex.numVar(0, Double.MAX_VALUE,
-                IloNumVarType.Float);
+    @Override
+    public SparseModel buildModel(RoutingData data, int[][] stringsInSolution)
+    {
+        ECCPRoutingData eccpData = (ECCPRoutingData) data;
+        SparseModel built = new SparseModel();
+        addVariables(built, eccpData);
+        addObjectiveFunction(built, eccpData);
+        addnewcostraints(built, eccpData);
+        addCoverFailureProbConstraint(built, eccpData);
+        addCoverConstraint(built, eccpData);
+        addFlightsInMaintConstraint(built, eccpData);
+        addFlightsOutMaintConstraint(built, eccpData);
+        addCountConstraint(built, eccpData);
+        addMaxFlightFailConstraint(built, eccpData);
+        addDecisionStringsConstraint(built, eccpData);
+        return built;
     }
 
     @Override
@@ -54,17 +64,8 @@ public class ECCPRoutingEquations implements RoutingEquations
     {
         try
         {
-            ECCPRoutingData eccpData = (ECCPRoutingData) data;
-            IloLinearNumExpr expr = cplex.linearNumExpr();
-            IloObjective obj = cplex.addMinimize();
-            int flightLegs = eccpData.getFlightLegs();
-
-            for (int i = 0; i < flightLegs; i++)
-            {
-                expr.addTerm(p[i], 1);
-            }
-
-            obj.setExpr(expr);
+            addObjectiveFunction(model, (ECCPRoutingData) data);
+            loader.loadObjective(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding objective function");
@@ -72,16 +73,27 @@ public class ECCPRoutingEquations implements RoutingEquations
         }
     }
 
+    private void addObjectiveFunction(SparseModel model, ECCPRoutingData data)
+    {
+        int flightLegs = data.getFlightLegs();
+
+        for (int i = 0; i < flightLegs; i++)
+        {
+            model.addObjective(p + i, 1);
+        }
+    }
+
     @Override
     public void setConstraints(IloCplex cplex, RoutingData data)
             throws IloException
     {
         ECCPRoutingData eccpData = (ECCPRoutingData) data;
-        addnewcostraints(cplex, eccpData);
+        addnewcostraints(model, eccpData);
         /* Add the cover failure probability constraint */
         try
         {
-            setCoverFailureProbConstraint(cplex, eccpData);
+            addCoverFailureProbConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out
@@ -92,7 +104,8 @@ public class ECCPRoutingEquations implements RoutingEquations
         /* Add the cover constraint */
         try
         {
-            setCoverConstraint(cplex, eccpData);
+            addCoverConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding cover constraint");
@@ -102,7 +115,8 @@ public class ECCPRoutingEquations implements RoutingEquations
         /* Add the flights in constraint */
         try
         {
-            setFlightsInMaintConstraint(cplex, eccpData);
+            addFlightsInMaintConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights in constraint");
@@ -112,7 +126,8 @@ public class ECCPRoutingEquations implements RoutingEquations
         /* Add the flights out constraint */
         try
         {
-            setFlightsOutMaintConstraint(cplex, eccpData);
+            addFlightsOutMaintConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights out constraint");
@@ -122,7 +137,8 @@ public class ECCPRoutingEquations implements RoutingEquations
         /* Add the count constraint */
         try
         {
-            setCountConstraint(cplex, eccpData);
+            addCountConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding count constraint");
@@ -132,7 +148,8 @@ public class ECCPRoutingEquations implements RoutingEquations
         /* Add the max flight failure probability constraint */
         try
         {
-            setMaxFlightFailConstraint(cplex, eccpData);
+            addMaxFlightFailConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out
@@ -143,7 +160,8 @@ public class ECCPRoutingEquations implements RoutingEquations
         /* Add the decision string constraint */
         try
         {
-            setDecisionStringsConstraint(cplex, eccpData);
+            addDecisionStringsConstraint(model, eccpData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding decision strings constraint");
@@ -151,170 +169,128 @@ public class ECCPRoutingEquations implements RoutingEquations
         }
     }
 
-    private void setCoverConstraint(IloCplex cplex, ECCPRoutingData data)
-            throws IloException
+    private void addCoverConstraint(SparseModel model, ECCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int flightLegs = data.getFlightLegs();
-        double[][] cover = data.getCover();
-        int strings = data.getStrings();
+        final SparseMatrix cover = data.getCover();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(cover[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(cover[i][j], x[j]));
+                /* Only the strings that cover the flight leg are added */
+                rows.addRow(cover, i, 1, x);
+                rows.addRange(1, 1);
             }
-            cplex.addEq(constraint, 1);
-        }
+        });
     }
 
-    private void setCoverFailureProbConstraint(IloCplex cplex,
-            ECCPRoutingData data) throws IloException
+    private void addCoverFailureProbConstraint(SparseModel model,
+            ECCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int flightLegs = data.getFlightLegs();
-        double[][] coverFailProb = data.getCoverFailureProb();
-        int strings = data.getStrings();
+        final SparseMatrix coverFailProb = data.getCoverFailureProb();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(coverFailProb[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(coverFailProb[i][j], x[j]));
+                /* The probabilities are only kept for the strings covering the flight leg */
+                rows.addRow(coverFailProb, i, 1, x);
+                rows.add(-1, p + i);
+                rows.addRange(0, 0);
             }
-            constraint = cplex.diff(constraint, p[i]);
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setFlightsInMaintConstraint(IloCplex cplex,
-            ECCPRoutingData data) throws IloException
+    private void addFlightsInMaintConstraint(SparseModel model,
+            ECCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsIn = data.getFlightMaintStringsIn();
-        double[][] flightMaintGroundIn = data.getFlightMaintGroundIn();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsIn = data.getFlightMaintStringsIn();
+        final NumberMatrix flightMaintGroundIn = data.getFlightMaintGroundIn();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsIn[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsIn[i][j], x[j]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundIn[i][j], y[j]));
+                rows.addRow(flightMaintStringsIn, i, x);
+                rows.addRow(flightMaintGroundIn, i, y);
+                rows.addRange(0, 0);
             }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setFlightsOutMaintConstraint(IloCplex cplex,
-            ECCPRoutingData data) throws IloException
+    private void addFlightsOutMaintConstraint(SparseModel model,
+            ECCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsOut = data.getFlightMaintStringsOut();
-        double[][] flightMaintGroundOut = data.getFlightMaintGroundOut();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsOut = data.getFlightMaintStringsOut();
+        final NumberMatrix flightMaintGroundOut = data.getFlightMaintGroundOut();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsOut[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsOut[i][j], x[j]));
+                rows.addRow(flightMaintStringsOut, i, x);
+                rows.addRow(flightMaintGroundOut, i, y);
+                rows.addRange(0, 0);
             }
-
-            for (int j = 0; j < groundArcs; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundOut[i][j], y[j]));
-            }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setCountConstraint(IloCplex cplex, ECCPRoutingData data)
-            throws IloException
+    private void addCountConstraint(SparseModel model, ECCPRoutingData data)
     {
-        IloNumExpr constraint = null;
-        double[][] countStrings = data.getCountStrings();
-        double[][] countGround = data.getCountGround();
+        NumberMatrix countStrings = data.getCountStrings();
+        NumberMatrix countGround = data.getCountGround();
         int airCrafts = data.getAirCrafts();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
 
-        constraint = cplex.prod(countStrings[0][0], x[0]);
-        for (int j = 1; j < strings; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countStrings[0][j], x[j]));
-        }
-        for (int j = 0; j < groundArcs; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countGround[0][j], y[j]));
-        }
-        cplex.addLe(constraint, airCrafts);
+        model.addRow(countStrings, 0, x);
+        model.addRow(countGround, 0, y);
+        model.addRange(-Double.MAX_VALUE, airCrafts);
     }
 
-    private void setMaxFlightFailConstraint(IloCplex cplex, ECCPRoutingData data)
-            throws IloException
+    private void addMaxFlightFailConstraint(SparseModel model,
+            ECCPRoutingData data)
     {
-        IloNumExpr constraint = null;
         int flightLegs = data.getFlightLegs();
 
         for (int i = 0; i < flightLegs; i++)
         {
-            constraint = cplex.diff(maxFlightFailProb, p[i]);
-            cplex.addGe(constraint, 0);
+            model.add(1, maxFlightFailProb);
+            model.add(-1, p + i);
+            model.addRange(0, Double.MAX_VALUE);
         }
     }
     
-    private void setDecisionStringsConstraint(IloCplex cplex,
-            ECCPRoutingData data) throws IloException
+    private void addDecisionStringsConstraint(SparseModel model,
+            ECCPRoutingData data)
     {
-        double[][] stringsInSolution = data.getStringsInSolution();
+        int[] stringsInSolution = data.getStringsInSolution();
         int strings = data.getStrings();
 
         for (int i = 1; i < strings; i++)
         {
-            if (stringsInSolution[0][i] == -1)
+            if (stringsInSolution[i] == -1)
                 break;
-            if (stringsInSolution[0][i] - stringsInSolution[0][i - 1] > 1)
+            if (stringsInSolution[i] - stringsInSolution[i - 1] > 1)
             {
-                for (int j = (int) stringsInSolution[0][i - 1]; j < (int) stringsInSolution[0][i] - 1; j++)
+                for (int j = stringsInSolution[i - 1]; j < stringsInSolution[i] - 1; j++)
                 {
-                    cplex.addEq(x[j], 0);
+                    model.add(1, x + j);
+                    model.addRange(0, 0);
                 }
             }
         }
     }
-    private void addnewcostraints(IloCplex cplex, ECCPRoutingData data) throws IloException{
+    private void addnewcostraints(SparseModel model, ECCPRoutingData data){
 
     }
     
     public IloNumVar[] getX()
     {
-        return x;
+        /* The strings take the columns up to the ground arcs */
+        return loader.getVariables(x, y - x);
     }
 
 	@Override
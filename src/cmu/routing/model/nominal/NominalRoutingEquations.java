@@ -4,14 +4,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Scanner;
 
+import cmu.routing.model.CplexLoader;
 import cmu.routing.model.RoutingData;
 import cmu.routing.model.RoutingEquations;
+import cmu.routing.model.SparseModel;
+import cmu.routing.model.SparseRows;
+import cmu.routing.model.VariableType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
 import ilog.concert.IloException;
-import ilog.concert.IloLinearNumExpr;
-import ilog.concert.IloNumExpr;
 import ilog.concert.IloNumVar;
-import ilog.concert.IloNumVarType;
-import ilog.concert.IloObjective;
 import ilog.concert.IloRange;
 import ilog.cplex.IloCplex;
 
@@ -23,35 +25,47 @@ import ilog.cplex.IloCplex;
  */
 public class NominalRoutingEquations implements RoutingEquations
 {
-    private IloNumVar[] x = null;
-    private IloNumVar[] y = null;
+    /* The first column of every variable */
+    private int x;
+    private int y;
+    private final SparseModel model = new SparseModel();
+    private final CplexLoader loader = new CplexLoader(model);
 
     /**
      * 
-     * The constructor creates the variables and sets the range of each variable
+     * The constructor adds the variables to the model and sets the range of
+     * each variable
      * 
      * @param data
      *            Object containing the routing data
-     * @throws IloException
-     *             Thrown when any error creating IloCplex object
      */
-    public NominalRoutingEquations(NominalRoutingData data) throws IloException
+    public NominalRoutingEquations(NominalRoutingData data)
     {
-        IloCplex cplex = new IloCplex();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
-        x = new IloNumVar[strings];
-        y = new IloNumVar[groundArcs];
+        addVariables(model, data);
+    }
 
-        for (int i = 0; i < strings; i++)
-        {
-            x[i] = cplex.numVar(0, 1, IloNumVarType.Int);
-        }
+    /* The columns are the same for every model they are added to */
+    private void addVariables(SparseModel model, NominalRoutingData data)
+    {
+        x = model.addColumns(data.getStrings(), 0, 1, VariableType.INT);
+        y = model.addColumns(data.getGroundArcs(), 0, Double.MAX_VALUE,
+                VariableType.FLOAT);
+    }
 
-        for (int i = 0; i < groundArcs; i++)
-        {
-            y[i] = cplex.numVar(0, Double.MAX_VALUE, IloNumVarType.Float);
-        }
+    @Override
+    public SparseModel buildModel(RoutingData data, int[][] stringsInSolution)
+    {
+        NominalRoutingData nomData = (NominalRoutingData) data;
+        SparseModel built = new SparseModel();
+        addVariables(built, nomData);
+        addObjectiveFunction(built, nomData);
+        addnewcostraints(built, nomData);
+        addCoverConstraint(built, nomData);
+        addFlightsInMaintConstraint(built, nomData);
+        addFlightsOutMaintConstraint(built, nomData);
+        addCountConstraint(built, nomData);
+        addDecisionStringsConstraint(built, nomData);
+        return built;
     }
 
     @Override
@@ -60,19 +74,8 @@ public class NominalRoutingEquations implements RoutingEquations
     {
         try
         {
-            NominalRoutingData nomData = (NominalRoutingData) data;
-            IloLinearNumExpr expr = cplex.linearNumExpr();
-            IloObjective obj = cplex.addMinimize();
-            double[][] propDelay = nomData.getPropDelay();
-            int strings = nomData.getStrings();
-
-            for (int i = 0; i < strings; i++)
-            {
-                expr.addTerm(propDelay[0][i], x[i]);
-                //expr.addTerm(0, x[i]);
-            }
-
-            obj.setExpr(expr);
+            addObjectiveFunction(model, (NominalRoutingData) data);
+            loader.loadObjective(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding objective function");
@@ -80,17 +83,29 @@ public class NominalRoutingEquations implements RoutingEquations
         }
     }
 
+    private void addObjectiveFunction(SparseModel model, NominalRoutingData data)
+    {
+        NumberMatrix propDelay = data.getPropDelay();
+        int strings = data.getStrings();
+
+        for (int i = 0; i < strings; i++)
+        {
+            model.addObjective(x + i, propDelay.get(0, i));
+        }
+    }
+
     @Override
     public void setConstraints(IloCplex cplex, RoutingData data)
             throws IloException
     {
         NominalRoutingData nomData = (NominalRoutingData) data;
         /* Add the cover constraint */
-        addnewcostraints(cplex, nomData);
+        addnewcostraints(model, nomData);
 
         try
         {
-            setCoverConstraint(cplex, nomData);
+            addCoverConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding cover constraint");
@@ -100,7 +115,8 @@ public class NominalRoutingEquations implements RoutingEquations
         /* Add the flights in constraint */
         try
         {
-            setFlightsInMaintConstraint(cplex, nomData);
+            addFlightsInMaintConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights in constraint");
@@ -110,7 +126,8 @@ public class NominalRoutingEquations implements RoutingEquations
         /* Add the flights out constraint */
         try
         {
-            setFlightsOutMaintConstraint(cplex, nomData);
+            addFlightsOutMaintConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding flights out constraint");
@@ -120,7 +137,8 @@ public class NominalRoutingEquations implements RoutingEquations
         /* Add the count constraint */
         try
         {
-            setCountConstraint(cplex, nomData);
+            addCountConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding count constraint");
@@ -130,7 +148,8 @@ public class NominalRoutingEquations implements RoutingEquations
         /* Add the decision string constraint */
         try
         {
-            setDecisionStringsConstraint(cplex, nomData);
+            addDecisionStringsConstraint(model, nomData);
+            loader.loadRows(cplex);
         } catch (IloException ioe)
         {
             System.out.println("Error in adding decision strings constraint");
@@ -139,131 +158,92 @@ public class NominalRoutingEquations implements RoutingEquations
 
     }
 
-    private void setCoverConstraint(IloCplex cplex, NominalRoutingData data)
-            throws IloException
+    private void addCoverConstraint(SparseModel model, NominalRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int flightLegs = data.getFlightLegs();
-        double[][] cover = data.getCover();
-        int strings = data.getStrings();
+        final SparseMatrix cover = data.getCover();
 
-        for (int i = 0; i < flightLegs; i++)
+        model.addRows(data.getFlightLegs(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(cover[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(cover[i][j], x[j]));
+                /* Only the strings that cover the flight leg are added */
+                rows.addRow(cover, i, 1, x);
+                rows.addRange(1, 1);
             }
-            cplex.addEq(constraint, 1);
-        }
+        });
     }
 
-    private void setFlightsInMaintConstraint(IloCplex cplex,
-            NominalRoutingData data) throws IloException
+    private void addFlightsInMaintConstraint(SparseModel model,
+            NominalRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsIn = data.getFlightMaintStringsIn();
-        double[][] flightMaintGroundIn = data.getFlightMaintGroundIn();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsIn = data.getFlightMaintStringsIn();
+        final NumberMatrix flightMaintGroundIn = data.getFlightMaintGroundIn();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsIn[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsIn[i][j], x[j]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundIn[i][j], y[j]));
+                rows.addRow(flightMaintStringsIn, i, x);
+                rows.addRow(flightMaintGroundIn, i, y);
+                rows.addRange(0, 0);
             }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setFlightsOutMaintConstraint(IloCplex cplex,
-            NominalRoutingData data) throws IloException
+    private void addFlightsOutMaintConstraint(SparseModel model,
+            NominalRoutingData data)
     {
-        IloNumExpr constraint = null;
-        int maintLoc = data.getMaintLocations();
-        double[][] flightMaintStringsOut = data.getFlightMaintStringsOut();
-        double[][] flightMaintGroundOut = data.getFlightMaintGroundOut();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
+        final NumberMatrix flightMaintStringsOut = data.getFlightMaintStringsOut();
+        final NumberMatrix flightMaintGroundOut = data.getFlightMaintGroundOut();
 
-        for (int i = 0; i < maintLoc; i++)
+        model.addRows(data.getMaintLocations(), new SparseModel.RowGenerator()
         {
-            constraint = cplex.prod(flightMaintStringsOut[i][0], x[0]);
-
-            for (int j = 1; j < strings; j++)
-            {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintStringsOut[i][j], x[j]));
-            }
-
-            for (int j = 0; j < groundArcs; j++)
+            @Override
+            public void addRows(int i, SparseRows rows)
             {
-                constraint = cplex.sum(constraint,
-                        cplex.prod(flightMaintGroundOut[i][j], y[j]));
+                rows.addRow(flightMaintStringsOut, i, x);
+                rows.addRow(flightMaintGroundOut, i, y);
+                rows.addRange(0, 0);
             }
-            cplex.addEq(constraint, 0);
-        }
+        });
     }
 
-    private void setCountConstraint(IloCplex cplex, NominalRoutingData data)
-            throws IloException
+    private void addCountConstraint(SparseModel model, NominalRoutingData data)
     {
-        IloNumExpr constraint = null;
-        double[][] countStrings = data.getCountStrings();
-        double[][] countGround = data.getCountGround();
+        NumberMatrix countStrings = data.getCountStrings();
+        NumberMatrix countGround = data.getCountGround();
         int airCrafts = data.getAirCrafts();
-        int strings = data.getStrings();
-        int groundArcs = data.getGroundArcs();
 
-        constraint = cplex.prod(countStrings[0][0], x[0]);
-        for (int j = 1; j < strings; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countStrings[0][j], x[j]));
-        }
-        for (int j = 0; j < groundArcs; j++)
-        {
-            constraint = cplex.sum(constraint,
-                    cplex.prod(countGround[0][j], y[j]));
-        }
-        cplex.addLe(constraint, airCrafts);
+        model.addRow(countStrings, 0, x);
+        model.addRow(countGround, 0, y);
+        model.addRange(-Double.MAX_VALUE, airCrafts);
     }
 
-    private void setDecisionStringsConstraint(IloCplex cplex,
-            NominalRoutingData data) throws IloException
+    private void addDecisionStringsConstraint(SparseModel model,
+            NominalRoutingData data)
     {
-        /*double[][] stringsInSolution = data.getStringsInSolution();
+        /*int[] stringsInSolution = data.getStringsInSolution();
         int strings = data.getStrings();
 
         for (int i = 1; i < strings; i++)
         {
-            if (stringsInSolution[0][i] == -1)
+            if (stringsInSolution[i] == -1)
                 break;
-            if (stringsInSolution[0][i] - stringsInSolution[0][i - 1] > 1)
+            if (stringsInSolution[i] - stringsInSolution[i - 1] > 1)
             {
-                for (int j = (int) stringsInSolution[0][i - 1]; j < (int) stringsInSolution[0][i] - 1; j++)
+                for (int j = stringsInSolution[i - 1]; j < stringsInSolution[i] - 1; j++)
                 {
-                    cplex.addEq(x[j], 0);
+                    model.add(1, x + j);
+                    model.addRange(0, 0);
                 }
             }
         }*/
     }
     
-    private void addnewcostraints(IloCplex cplex, NominalRoutingData data) throws IloException{
-    	/*int [] route_days = new int [878207];
+    private void addnewcostraints(SparseModel model, NominalRoutingData data){
+    	/*int [] route_days = new int [data.getStrings()];
     	File file = new File ("B735_Condensed_Real_Strings_modified.dat");
         Scanner inputStreamroute;
 		try {
@@ -300,14 +280,16 @@ public class NominalRoutingEquations implements RoutingEquations
         for (int i = 0; i < strings; i++)
         {
         	if (route_days[i] == 3){
-        		cplex.addEq(x[i], 0);
+        		model.add(1, x + i);
+        		model.addRange(0, 0);
         	}
         }*/
     }
     
     public IloNumVar[] getX()
     {
-        return x;
+        /* The strings take the columns up to the ground arcs */
+        return loader.getVariables(x, y - x);
     }
 
 	@Override
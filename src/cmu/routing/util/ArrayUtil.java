@@ -1,5 +1,6 @@
 package cmu.routing.util;
 
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
 /**
@@ -38,6 +39,222 @@ public class ArrayUtil
         }
     }
 
+    /**
+     * 
+     * Used to populate the 2-dimensional array straight from the raw bytes of
+     * a value. The numbers are decoded without creating a string for each of
+     * them, and large values are decoded on all cores. Missing trailing values
+     * are set to -1.
+     * 
+     * @param array
+     *            The array to be populated
+     * @param data
+     *            The value to be decoded
+     */
+    public static void populateArray(double[][] array, DataValue data)
+    {
+        if (ParallelDecoder.isParallel(data))
+        {
+            new ParallelDecoder(data).populateArray(array);
+            return;
+        }
+
+        NumberDecoder decoder = data.decoder();
+
+        for (double[] row : array)
+        {
+            int count = decoder.decode(row, 0, row.length);
+            if (count < row.length)
+                Arrays.fill(row, count, row.length, -1);
+        }
+    }
+
+    /**
+     * 
+     * Used to populate an array of whole numbers, such as an index of the
+     * strings, straight from the raw bytes of a value. Missing trailing values
+     * are set to -1.
+     * 
+     * @param array
+     *            The array to be populated
+     * @param data
+     *            The value to be decoded
+     */
+    public static void populateArray(int[] array, DataValue data)
+    {
+        if (ParallelDecoder.isParallel(data))
+        {
+            new ParallelDecoder(data).populateArray(array);
+            return;
+        }
+
+        int count = data.decoder().decode(array, 0, array.length);
+        if (count < array.length)
+            Arrays.fill(array, count, array.length, -1);
+    }
+
+    /**
+     * 
+     * Used to read an array of whole numbers whose length is not given by any
+     * header. The array is sized to the number of numbers in the value.
+     * 
+     * @param data
+     *            The value to be decoded
+     * @return The array holding all numbers of the value
+     */
+    public static int[] readArray(DataValue data)
+    {
+        long count = data.decoder().count();
+        if (count > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The value holds " + count
+                    + " numbers, more than an array can hold");
+        int[] array = new int[(int) count];
+        populateArray(array, data);
+        return array;
+    }
+
+    /**
+     * 
+     * Used to populate a matrix straight from the raw bytes of a value. The
+     * numbers are stored in the element type of the matrix, and large values
+     * are decoded on all cores. Missing trailing values are set to -1.
+     * 
+     * @param matrix
+     *            The matrix to be populated
+     * @param data
+     *            The value to be decoded
+     */
+    public static void populateArray(NumberMatrix matrix, DataValue data)
+    {
+        int[] columnMap = new int[matrix.getCols()];
+        for (int j = 0; j < columnMap.length; j++)
+            columnMap[j] = j;
+        populateArray(matrix, columnMap, data);
+    }
+
+    /**
+     * 
+     * Used to populate the columns of a matrix straight from the raw bytes of
+     * a value that holds the columns in another order. Every number is
+     * written to its final column as it is decoded, so the array of the value
+     * itself is never created. Missing trailing values are set to -1.
+     * 
+     * @param matrix
+     *            The matrix to be populated
+     * @param columnMap
+     *            For every column of the value the column of the matrix it is
+     *            stored in, or -1 to skip it. No two columns may be stored in
+     *            the same column of the matrix.
+     * @param data
+     *            The value to be decoded
+     */
+    public static void populateArray(NumberMatrix matrix, int[] columnMap,
+            DataValue data)
+    {
+        if (ParallelDecoder.isParallel(data))
+        {
+            new ParallelDecoder(data).populateArray(matrix, columnMap);
+            return;
+        }
+
+        NumberDecoder decoder = data.decoder();
+
+        for (int i = 0; i < matrix.getRows(); i++)
+        {
+            for (int j = 0; j < columnMap.length; j++)
+            {
+                int col = columnMap[j];
+                if (!decoder.hasNext())
+                {
+                    if (col >= 0)
+                        matrix.set(i, col, -1);
+                } else if (col >= 0)
+                    matrix.set(i, col, decoder.nextDouble());
+                else
+                    decoder.skip();
+            }
+        }
+    }
+
+    /**
+     * 
+     * Used to read a 2-dimensional array of mostly zero values straight from
+     * the raw bytes of a value into a sparse matrix. Only the nonzero numbers
+     * are stored, so the dense array is never created. Missing trailing values
+     * are set to -1.
+     * 
+     * @param rowCount
+     *            Number of rows
+     * @param colCount
+     *            Number of columns
+     * @param data
+     *            The value to be decoded
+     * @return The sparse matrix holding the values
+     */
+    public static SparseMatrix readMatrix(int rowCount, int colCount,
+            DataValue data)
+    {
+        if (ParallelDecoder.isParallel(data))
+            return new ParallelDecoder(data).readMatrix(rowCount, colCount);
+
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(rowCount,
+                colCount);
+        NumberDecoder decoder = data.decoder();
+
+        for (int i = 0; i < rowCount; i++)
+        {
+            for (int j = 0; j < colCount; j++)
+            {
+                if (decoder.hasNext())
+                    builder.add(i, j, decoder.nextDouble());
+                else
+                    builder.add(i, j, -1);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 
+     * Used to read a 2-dimensional array of which only the values at the
+     * nonzero positions of another matrix are needed. The other numbers are
+     * skipped without being decoded, and the values are stored in a matrix
+     * that shares the rows and columns of the pattern. Missing trailing values
+     * are set to -1.
+     * 
+     * @param pattern
+     *            The matrix holding the positions to be read
+     * @param data
+     *            The value to be decoded
+     * @return The sparse matrix holding the values
+     */
+    public static SparseMatrix readMatrixValues(SparseMatrix pattern,
+            DataValue data)
+    {
+        if (ParallelDecoder.isParallel(data))
+            return new ParallelDecoder(data).readMatrixValues(pattern);
+
+        double[] values = new double[pattern.getNonZeros()];
+        NumberDecoder decoder = data.decoder();
+        long index = 0;
+
+        for (int i = 0; i < pattern.getRows(); i++)
+        {
+            for (int k = pattern.rowStart(i); k < pattern.rowEnd(i); k++)
+            {
+                long target = (long) i * pattern.getCols() + pattern.column(k);
+                for (; index < target && decoder.hasNext(); index++)
+                    decoder.skip();
+                if (index == target && decoder.hasNext())
+                    values[k] = decoder.nextDouble();
+                else
+                    values[k] = -1;
+                index++;
+            }
+        }
+        return pattern.withValues(values);
+    }
+
     /**
      * 
      * Initializes a 2-dimensional array based on the number of rows and columns
@@ -0,0 +1,495 @@
+package cmu.routing.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * Reads the binary cache file written by {@link BinaryCacheWriter}. The
+ * blocks are memory mapped, so an array is copied from the page cache into
+ * the heap without any parsing.
+ *
+ */
+public class BinaryCacheReader
+{
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private final RandomAccessFile input;
+    private final FileChannel channel;
+    private final Map<String, Block> blocks = new HashMap<String, Block>();
+    private int strings;
+    private int flightLegs;
+    private int groundArcs;
+    private int maintLoc;
+
+    private static class Block
+    {
+        byte type;
+        int rows;
+        int cols;
+        long offset;
+    }
+
+    private BinaryCacheReader(File file) throws IOException
+    {
+        input = new RandomAccessFile(file, "r");
+        channel = input.getChannel();
+    }
+
+    /**
+     *
+     * Opens the cache file if it was built from the given input files and
+     * none of them has changed since
+     *
+     * @param file
+     *            The cache file
+     * @param sources
+     *            The input files the data is parsed from
+     * @return The reader, or null if there is no valid cache file
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public static BinaryCacheReader open(File file, String[] sources)
+            throws IOException
+    {
+        if (!file.isFile())
+            return null;
+
+        BinaryCacheReader reader = new BinaryCacheReader(file);
+        boolean valid = false;
+        try
+        {
+            valid = reader.readHeader(sources);
+        } finally
+        {
+            if (!valid)
+                reader.close();
+        }
+        return valid ? reader : null;
+    }
+
+    /**
+     *
+     * Reads the blocks of the cache file if it was built from the given input
+     * files and none of them has changed since. A cache file that can not be
+     * read is reported and left to be written again.
+     *
+     * @param file
+     *            The cache file
+     * @param sources
+     *            The input files the data is parsed from
+     * @param reader
+     *            Reads the blocks of the data
+     * @return true if all the blocks of the data were read from the cache
+     */
+    public static boolean read(File file, String[] sources, BlockReader reader)
+    {
+        try
+        {
+            BinaryCacheReader cache = open(file, sources);
+            if (cache == null)
+                return false;
+            try
+            {
+                if (!reader.readBlocks(cache))
+                    return false;
+            } finally
+            {
+                cache.close();
+            }
+        } catch (IOException e)
+        {
+            System.out.println("Not able to read the cache file " + file);
+            return false;
+        }
+        System.out.println("Input data loaded from " + file);
+        return true;
+    }
+
+    /**
+     *
+     * Tells if the cache file was built from the given input files and none
+     * of them has changed since, without reading its blocks
+     *
+     * @param file
+     *            The cache file
+     * @param sources
+     *            The input files the data is parsed from
+     * @return true if there is a valid cache file
+     */
+    public static boolean isValid(File file, String[] sources)
+    {
+        try
+        {
+            BinaryCacheReader cache = open(file, sources);
+            if (cache == null)
+                return false;
+            cache.close();
+            return true;
+        } catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    public int getStrings()
+    {
+        return strings;
+    }
+
+    public int getFlightLegs()
+    {
+        return flightLegs;
+    }
+
+    public int getGroundArcs()
+    {
+        return groundArcs;
+    }
+
+    public int getMaintLocations()
+    {
+        return maintLoc;
+    }
+
+    /**
+     *
+     * @param name
+     *            Name of the block
+     * @return true if the cache holds the block
+     */
+    public boolean contains(String name)
+    {
+        return blocks.containsKey(name);
+    }
+
+    /**
+     *
+     * Reads a block of doubles into a new 2-dimensional array
+     *
+     * @param name
+     *            Name of the block
+     * @return The array, or null if the cache does not hold the block
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public double[][] readDoubleArray(String name) throws IOException
+    {
+        Block block = getBlock(name, BinaryCacheWriter.TYPE_DOUBLE);
+        if (block == null)
+            return null;
+
+        double[][] array = ArrayUtil.initArray(block.rows, block.cols);
+        long rowSize = 8L * block.cols;
+        int rowsPerMapping = (int) Math.max(1,
+                Math.min(block.rows, MAX_MAPPING / Math.max(rowSize, 1)));
+        for (int row = 0; row < block.rows; row += rowsPerMapping)
+        {
+            int count = Math.min(rowsPerMapping, block.rows - row);
+            DoubleBuffer values = map(block.offset + row * rowSize,
+                    count * rowSize).asDoubleBuffer();
+            for (int i = 0; i < count; i++)
+                values.get(array[row + i]);
+        }
+        return array;
+    }
+
+    /**
+     *
+     * Reads a block into a new matrix of the element type it was written
+     * with. Every row is copied from the file at once.
+     *
+     * @param name
+     *            Name of the block
+     * @param storage
+     *            Where the values of the matrix are kept
+     * @param directory
+     *            The directory of the storage file of a mapped matrix, or
+     *            null for the default temporary directory
+     * @return The matrix, or null if the cache does not hold the block
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public NumberMatrix readNumberMatrix(String name, Storage storage,
+            File directory) throws IOException
+    {
+        Block block = blocks.get(name);
+        if (block == null)
+            return null;
+
+        ElementType type = null;
+        for (ElementType candidate : ElementType.values())
+            if (BinaryCacheWriter.getTypeCode(candidate) == block.type)
+                type = candidate;
+        if (type == null)
+            throw new IOException("The cache block " + name
+                    + " has an unexpected type");
+
+        NumberMatrix matrix = NumberMatrix.create(type, block.rows,
+                block.cols, storage, directory);
+        long rowSize = (long) type.getSize() * block.cols;
+        int rowsPerMapping = (int) Math.max(1,
+                Math.min(block.rows, MAX_MAPPING / Math.max(rowSize, 1)));
+        for (int row = 0; row < block.rows; row += rowsPerMapping)
+        {
+            int count = Math.min(rowsPerMapping, block.rows - row);
+            ByteBuffer values = map(block.offset + row * rowSize, count
+                    * rowSize);
+            for (int i = row; i < row + count; i++)
+                matrix.setRow(i, values);
+        }
+        return matrix;
+    }
+
+    /**
+     *
+     * Reads a single row block of doubles
+     *
+     * @param name
+     *            Name of the block
+     * @return The array, or null if the cache does not hold the block
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public double[] readDoubleRow(String name) throws IOException
+    {
+        Block block = getBlock(name, BinaryCacheWriter.TYPE_DOUBLE);
+        if (block == null)
+            return null;
+
+        double[] array = new double[block.cols];
+        map(block.offset, 8L * block.cols).asDoubleBuffer().get(array);
+        return array;
+    }
+
+    /**
+     *
+     * Reads the blocks of a sparse matrix
+     *
+     * @param name
+     *            Name of the matrix
+     * @return The matrix, or null if the cache does not hold the matrix
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public SparseMatrix readMatrix(String name) throws IOException
+    {
+        int[] size = readIntArray(name + BinaryCacheWriter.SIZE);
+        int[] rowStarts = readIntArray(name + BinaryCacheWriter.ROW_STARTS);
+        int[] columns = readIntArray(name + BinaryCacheWriter.COLUMNS);
+        double[] values = readDoubleRow(name + BinaryCacheWriter.VALUES);
+        if (size == null || rowStarts == null || columns == null
+                || values == null)
+            return null;
+        if (size.length != 2 || rowStarts.length != size[0] + 1
+                || columns.length != values.length
+                || rowStarts[size[0]] != values.length)
+            throw new IOException("The cache block " + name
+                    + " is corrupted");
+
+        return new SparseMatrix(size[0], size[1], rowStarts, columns, values);
+    }
+
+    /**
+     *
+     * Reads the values of a sparse matrix that shares its rows and columns
+     * with another matrix
+     *
+     * @param name
+     *            Name of the matrix
+     * @param pattern
+     *            The matrix holding the rows and columns
+     * @return The matrix, or null if the cache does not hold the values
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public SparseMatrix readMatrixValues(String name, SparseMatrix pattern)
+            throws IOException
+    {
+        double[] values = readDoubleRow(name + BinaryCacheWriter.VALUES);
+        if (values == null || pattern == null)
+            return null;
+        if (values.length != pattern.getNonZeros())
+            throw new IOException("The cache block " + name
+                    + " is corrupted");
+
+        return pattern.withValues(values);
+    }
+
+    /**
+     *
+     * Reads a single row block of integers
+     *
+     * @param name
+     *            Name of the block
+     * @return The array, or null if the cache does not hold the block
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public int[] readIntArray(String name) throws IOException
+    {
+        Block block = getBlock(name, BinaryCacheWriter.TYPE_INT);
+        if (block == null)
+            return null;
+
+        int[] array = new int[block.cols];
+        map(block.offset, 4L * block.cols).asIntBuffer().get(array);
+        return array;
+    }
+
+    /**
+     *
+     * Reads a single row block of bytes
+     *
+     * @param name
+     *            Name of the block
+     * @return The array, or null if the cache does not hold the block
+     * @throws IOException
+     *             Thrown when any error while reading the file
+     */
+    public byte[] readByteArray(String name) throws IOException
+    {
+        Block block = getBlock(name, BinaryCacheWriter.TYPE_BYTE);
+        if (block == null)
+            return null;
+
+        byte[] array = new byte[block.cols];
+        map(block.offset, block.cols).get(array);
+        return array;
+    }
+
+    /**
+     *
+     * Closes the cache file
+     *
+     * @throws IOException
+     *             Thrown when any error while closing the file
+     */
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+    /**
+     *
+     * Reads the blocks of the data of a model from a cache file
+     *
+     */
+    public interface BlockReader
+    {
+        /**
+         *
+         * @param cache
+         *            The cache file
+         * @return true if the cache holds all the blocks of the data
+         * @throws IOException
+         *             Thrown when any error while reading the file
+         */
+        boolean readBlocks(BinaryCacheReader cache) throws IOException;
+    }
+
+    private Block getBlock(String name, byte type) throws IOException
+    {
+        Block block = blocks.get(name);
+        if (block != null && block.type != type)
+            throw new IOException("The cache block " + name
+                    + " has an unexpected type");
+        return block;
+    }
+
+    private boolean readHeader(String[] sources) throws IOException
+    {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = read(position, 12);
+        if (header.getInt() != BinaryCacheWriter.MAGIC
+                || header.getInt() != BinaryCacheWriter.VERSION
+                || header.getInt() != sources.length)
+            return false;
+        position += 12;
+
+        for (String source : sources)
+        {
+            String path = readString(position);
+            position += 4 + path.getBytes(StandardCharsets.UTF_8).length;
+            ByteBuffer stamp = read(position, 16);
+            position += 16;
+            File input = source == null ? null : FileUtil
+                    .resolveInputFile(source);
+            if (!path.equals(source == null ? "" : source)
+                    || stamp.getLong() != (input == null ? -1 : input.length())
+                    || stamp.getLong() != (input == null ? -1 : input
+                            .lastModified()))
+                return false;
+        }
+
+        ByteBuffer dimensions = read(position, 16);
+        position += 16;
+        strings = dimensions.getInt();
+        flightLegs = dimensions.getInt();
+        groundArcs = dimensions.getInt();
+        maintLoc = dimensions.getInt();
+
+        while (position < size)
+        {
+            String name = readString(position);
+            position += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+            ByteBuffer blockHeader = read(position, 9);
+            position += 9;
+            Block block = new Block();
+            block.type = blockHeader.get();
+            block.rows = blockHeader.getInt();
+            block.cols = blockHeader.getInt();
+            int elementSize = BinaryCacheWriter.getElementSize(block.type);
+            position += (elementSize - position % elementSize) % elementSize;
+            block.offset = position;
+            /* A damaged header must not move backwards or past the end */
+            if (block.rows < 0 || block.cols < 0 || position > size
+                    || (long) block.rows * block.cols > (size - position)
+                            / elementSize)
+                throw new IOException("The cache file is corrupted");
+            position += (long) block.rows * block.cols * elementSize;
+            blocks.put(name, block);
+        }
+        return position == size;
+    }
+
+    private String readString(long position) throws IOException
+    {
+        int length = read(position, 4).getInt();
+        if (length < 0 || length > channel.size() - position)
+            throw new IOException("The cache file is corrupted");
+        ByteBuffer bytes = read(position + 4, length);
+        return new String(bytes.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ORDER);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of the cache file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer map(long position, long length) throws IOException
+    {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                position, length);
+        mapped.order(ORDER);
+        return mapped;
+    }
+}
@@ -0,0 +1,397 @@
+package cmu.routing.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Writes the parsed data of a model to the binary cache file that is read
+ * back by {@link BinaryCacheReader}. The file starts with a header holding
+ * the input files it was built from and the dimensions of the model,
+ * followed by one typed block per array.
+ *
+ */
+public class BinaryCacheWriter
+{
+    static final int MAGIC = 0x524D4443;
+    static final int VERSION = 4;
+    static final byte TYPE_DOUBLE = 1;
+    static final byte TYPE_INT = 2;
+    static final byte TYPE_BYTE = 3;
+    static final byte TYPE_SHORT = 4;
+    static final String ROW_STARTS = ".row_starts";
+    static final String COLUMNS = ".columns";
+    static final String VALUES = ".values";
+    static final String SIZE = ".size";
+
+    private final File file;
+    private final File tempFile;
+    private final RandomAccessFile output;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(
+            BinaryCacheReader.ORDER);
+
+    /**
+     *
+     * Creates the cache file and writes its header. The file only replaces
+     * an existing cache once {@link #close()} is called.
+     *
+     * @param file
+     *            The cache file
+     * @param sources
+     *            The input files the data was parsed from
+     * @param strings
+     *            Number of strings
+     * @param flightLegs
+     *            Number of flight legs
+     * @param groundArcs
+     *            Number of ground arcs
+     * @param maintLoc
+     *            Number of maintenance locations
+     * @throws IOException
+     *             Thrown when any error while creating the file
+     */
+    public BinaryCacheWriter(File file, String[] sources, int strings,
+            int flightLegs, int groundArcs, int maintLoc) throws IOException
+    {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".part");
+        this.output = new RandomAccessFile(tempFile, "rw");
+        this.output.setLength(0);
+        this.channel = output.getChannel();
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(sources.length);
+        for (String source : sources)
+        {
+            File input = source == null ? null : FileUtil
+                    .resolveInputFile(source);
+            putString(source == null ? "" : source);
+            buffer.putLong(input == null ? -1 : input.length());
+            buffer.putLong(input == null ? -1 : input.lastModified());
+        }
+        buffer.putInt(strings);
+        buffer.putInt(flightLegs);
+        buffer.putInt(groundArcs);
+        buffer.putInt(maintLoc);
+    }
+
+    /**
+     *
+     * Writes the blocks of the data to a new cache file. A cache file that
+     * can not be written is reported and dropped.
+     *
+     * @param file
+     *            The cache file
+     * @param sources
+     *            The input files the data was parsed from
+     * @param strings
+     *            Number of strings
+     * @param flightLegs
+     *            Number of flight legs
+     * @param groundArcs
+     *            Number of ground arcs
+     * @param maintLoc
+     *            Number of maintenance locations
+     * @param writer
+     *            Writes the blocks of the data
+     */
+    public static void write(File file, String[] sources, int strings,
+            int flightLegs, int groundArcs, int maintLoc, BlockWriter writer)
+    {
+        BinaryCacheWriter cache = null;
+        try
+        {
+            cache = new BinaryCacheWriter(file, sources, strings, flightLegs,
+                    groundArcs, maintLoc);
+            writer.writeBlocks(cache);
+            cache.close();
+        } catch (IOException e)
+        {
+            System.out.println("Not able to write the cache file " + file);
+            if (cache != null)
+                cache.abort();
+        }
+    }
+
+    /**
+     *
+     * Writes a 2-dimensional array as a block of doubles
+     *
+     * @param name
+     *            Name of the block
+     * @param array
+     *            The array to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void write(String name, double[][] array) throws IOException
+    {
+        putBlockHeader(name, TYPE_DOUBLE, array.length,
+                array.length == 0 ? 0 : array[0].length, 8);
+        for (double[] row : array)
+            for (double value : row)
+            {
+                ensureRemaining(8);
+                buffer.putDouble(value);
+            }
+    }
+
+    /**
+     *
+     * Writes an array as a single row block of doubles
+     *
+     * @param name
+     *            Name of the block
+     * @param array
+     *            The array to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void write(String name, double[] array) throws IOException
+    {
+        putBlockHeader(name, TYPE_DOUBLE, 1, array.length, 8);
+        for (double value : array)
+        {
+            ensureRemaining(8);
+            buffer.putDouble(value);
+        }
+    }
+
+    /**
+     *
+     * Writes a matrix as a block of its own element type
+     *
+     * @param name
+     *            Name of the block
+     * @param matrix
+     *            The matrix to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void write(String name, NumberMatrix matrix) throws IOException
+    {
+        ElementType type = matrix.getType();
+        int size = type.getSize();
+        putBlockHeader(name, getTypeCode(type), matrix.getRows(),
+                matrix.getCols(), size);
+        for (int i = 0; i < matrix.getRows(); i++)
+            for (int j = 0; j < matrix.getCols(); j++)
+            {
+                ensureRemaining(size);
+                double value = matrix.get(i, j);
+                switch (type)
+                {
+                case BYTE:
+                    buffer.put((byte) value);
+                    break;
+                case SHORT:
+                    buffer.putShort((short) value);
+                    break;
+                default:
+                    buffer.putDouble(value);
+                }
+            }
+    }
+
+    /**
+     *
+     * Writes a sparse matrix as the blocks of its rows, columns and values.
+     * The column oriented index is rebuilt when the matrix is read.
+     *
+     * @param name
+     *            Name of the matrix
+     * @param matrix
+     *            The matrix to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void write(String name, SparseMatrix matrix) throws IOException
+    {
+        write(name + ROW_STARTS, matrix.getRowStarts());
+        write(name + COLUMNS, matrix.getColumns());
+        write(name + VALUES, matrix.getValues());
+        write(name + SIZE, new int[] { matrix.getRows(), matrix.getCols() });
+    }
+
+    /**
+     *
+     * Writes only the values of a sparse matrix that shares its rows and
+     * columns with another matrix of the cache
+     *
+     * @param name
+     *            Name of the matrix
+     * @param matrix
+     *            The matrix to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void writeValues(String name, SparseMatrix matrix)
+            throws IOException
+    {
+        write(name + VALUES, matrix.getValues());
+    }
+
+    /**
+     *
+     * Writes an array as a single row block of integers
+     *
+     * @param name
+     *            Name of the block
+     * @param array
+     *            The array to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void write(String name, int[] array) throws IOException
+    {
+        putBlockHeader(name, TYPE_INT, 1, array.length, 4);
+        for (int value : array)
+        {
+            ensureRemaining(4);
+            buffer.putInt(value);
+        }
+    }
+
+    /**
+     *
+     * Writes an array as a single row block of bytes
+     *
+     * @param name
+     *            Name of the block
+     * @param array
+     *            The array to be written
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void write(String name, byte[] array) throws IOException
+    {
+        putBlockHeader(name, TYPE_BYTE, 1, array.length, 1);
+        for (byte value : array)
+        {
+            ensureRemaining(1);
+            buffer.put(value);
+        }
+    }
+
+    /**
+     *
+     * Finishes the file and moves it in place of the previous cache
+     *
+     * @throws IOException
+     *             Thrown when any error while writing the file
+     */
+    public void close() throws IOException
+    {
+        flush();
+        output.close();
+        if (file.exists() && !file.delete())
+            throw new IOException("Not able to replace the cache file " + file);
+        if (!tempFile.renameTo(file))
+            throw new IOException("Not able to create the cache file " + file);
+    }
+
+    /**
+     *
+     * Drops a cache file that could not be completed
+     */
+    public void abort()
+    {
+        try
+        {
+            output.close();
+        } catch (IOException e)
+        {
+        }
+        tempFile.delete();
+    }
+
+    /**
+     *
+     * Writes the blocks of the data of a model to a cache file
+     *
+     */
+    public interface BlockWriter
+    {
+        /**
+         *
+         * @param cache
+         *            The cache file
+         * @throws IOException
+         *             Thrown when any error while writing the file
+         */
+        void writeBlocks(BinaryCacheWriter cache) throws IOException;
+    }
+
+    static byte getTypeCode(ElementType type)
+    {
+        switch (type)
+        {
+        case BYTE:
+            return TYPE_BYTE;
+        case SHORT:
+            return TYPE_SHORT;
+        default:
+            return TYPE_DOUBLE;
+        }
+    }
+
+    static int getElementSize(byte typeCode)
+    {
+        switch (typeCode)
+        {
+        case TYPE_DOUBLE:
+            return 8;
+        case TYPE_INT:
+            return 4;
+        case TYPE_SHORT:
+            return 2;
+        default:
+            return 1;
+        }
+    }
+
+    private void putBlockHeader(String name, byte type, int rows, int cols,
+            int elementSize) throws IOException
+    {
+        putString(name);
+        ensureRemaining(9);
+        buffer.put(type);
+        buffer.putInt(rows);
+        buffer.putInt(cols);
+
+        /* The data of every block starts at a multiple of its element size */
+        long offset = channel.position() + buffer.position();
+        int padding = (int) ((elementSize - offset % elementSize) % elementSize);
+        ensureRemaining(padding);
+        for (int i = 0; i < padding; i++)
+            buffer.put((byte) 0);
+    }
+
+    private void putString(String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensureRemaining(int count) throws IOException
+    {
+        if (buffer.remaining() < count)
+            flush();
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
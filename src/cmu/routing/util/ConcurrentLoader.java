@@ -0,0 +1,175 @@
+package cmu.routing.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *
+ * Reads the input files of a model concurrently on a bounded pool of
+ * threads. The files are independent of each other until their strings are
+ * merged, so every file is read and decoded on its own thread.
+ *
+ */
+public class ConcurrentLoader
+{
+    private static final int MAX_THREADS = 4;
+
+    private final ExecutorService executor;
+
+    public ConcurrentLoader()
+    {
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime()
+                .availableProcessors()));
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "input-loader-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     *
+     * Starts reading a base input file
+     *
+     * @param baseInputFile
+     *            The input file containing the data
+     * @param keys
+     *            The keys needed by the model, or null for all keys
+     * @return The contents of the file once it is read
+     */
+    public Future<DataContents> readBaseFile(final String baseInputFile,
+            final Set<String> keys)
+    {
+        return executor.submit(new Callable<DataContents>()
+        {
+            @Override
+            public DataContents call() throws IOException
+            {
+                return FileUtil.readBaseFile(baseInputFile, keys);
+            }
+        });
+    }
+
+    /**
+     *
+     * Starts reading an input file together with its incremental and
+     * mechanism files
+     *
+     * @param baseInputFile
+     *            The input file containing the data
+     * @param incDataFile
+     *            The optional input data file to override the data of the base
+     *            input file
+     * @param mechanism
+     *            The mechanism number
+     * @param keys
+     *            The keys needed by the model, or null for all keys
+     * @return The contents of the files once they are read
+     */
+    public Future<DataContents> readInputFile(final String baseInputFile,
+            final String incDataFile, final String mechanism,
+            final Set<String> keys)
+    {
+        return executor.submit(new Callable<DataContents>()
+        {
+            @Override
+            public DataContents call() throws IOException
+            {
+                return FileUtil.readInputFile(baseInputFile, incDataFile,
+                        mechanism, keys);
+            }
+        });
+    }
+
+    /**
+     *
+     * Starts reading a hat file
+     *
+     * @param hatDataFile
+     *            The hat file containing the data
+     * @param keys
+     *            The keys needed by the model, or null for all keys
+     * @return The contents of the file once it is read
+     */
+    public Future<DataContents> readHatFile(final String hatDataFile,
+            final Set<String> keys)
+    {
+        return executor.submit(new Callable<DataContents>()
+        {
+            @Override
+            public DataContents call() throws IOException
+            {
+                return FileUtil.readHatFile(hatDataFile, keys);
+            }
+        });
+    }
+
+    /**
+     *
+     * Runs a part of the loading on the pool
+     *
+     * @param task
+     *            The part to be run
+     * @return The result of the part once it is finished
+     */
+    public Future<?> submit(Runnable task)
+    {
+        return executor.submit(task);
+    }
+
+    /**
+     *
+     * Waits for a part of the loading to finish
+     *
+     * @param future
+     *            The result of the part
+     * @return The value computed by the part
+     * @throws IOException
+     *             Thrown when the part failed to read its file
+     */
+    public static <T> T get(Future<T> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading");
+        } catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     *
+     * Stops the threads of the pool. Parts that did not finish yet are
+     * cancelled.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,100 @@
+package cmu.routing.util;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * This class holds the key-value pairs of the input files. The values are
+ * kept as the raw bytes of the file, so array values can be decoded straight
+ * into their target arrays without creating a string for every number. The
+ * bytes are either on the heap or mapped from the parse cache, which keeps
+ * the array values already decoded.
+ *
+ */
+public class DataContents
+{
+    private final Map<String, DataValue> values = new HashMap<String, DataValue>();
+
+    /**
+     *
+     * Stores the value of a key. A value that is already present for the key
+     * is replaced.
+     *
+     * @param key
+     *            The name of the property
+     * @param value
+     *            The raw bytes of the value
+     */
+    public void put(String key, byte[] value)
+    {
+        values.put(key, DataValue.text(ByteBuffer.wrap(value)));
+    }
+
+    /**
+     *
+     * Stores the value of a key. A value that is already present for the key
+     * is replaced.
+     *
+     * @param key
+     *            The name of the property
+     * @param value
+     *            The raw bytes of the value between its position and limit
+     */
+    public void put(String key, ByteBuffer value)
+    {
+        values.put(key, DataValue.text(value));
+    }
+
+    /**
+     *
+     * Stores the value of a key. A value that is already present for the key
+     * is replaced.
+     *
+     * @param key
+     *            The name of the property
+     * @param value
+     *            The value
+     */
+    public void put(String key, DataValue value)
+    {
+        values.put(key, value);
+    }
+
+    /**
+     *
+     * @param key
+     *            The name of the property
+     * @return The value, or null if the key is not present
+     */
+    public DataValue getValue(String key)
+    {
+        return values.get(key);
+    }
+
+    /**
+     *
+     * Used for the scalar values like the number of strings
+     *
+     * @param key
+     *            The name of the property
+     * @return The value as a string, or null if the key is not present
+     */
+    public String getProperty(String key)
+    {
+        DataValue value = getValue(key);
+        return value == null ? null : value.getText();
+    }
+
+    /**
+     *
+     * @param key
+     *            The name of the property
+     * @return true if the key is present
+     */
+    public boolean containsKey(String key)
+    {
+        return values.containsKey(key);
+    }
+}
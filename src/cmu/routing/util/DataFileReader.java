@@ -0,0 +1,125 @@
+package cmu.routing.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ *
+ * Reads the ".dat" input files of the model in a single pass. The files
+ * contain key-value pairs of the form <code>key = [ ... ];</code> where a
+ * value may span several lines, and comment lines starting with
+ * <code>//</code>. Every value is handed to a {@link DataValueHandler} as a
+ * stream, so the caller decides how the value is stored.
+ *
+ */
+public class DataFileReader
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     *
+     * @param in
+     *            The stream holding the contents of the input file
+     */
+    public DataFileReader(InputStream in)
+    {
+        this.in = in;
+    }
+
+    /**
+     *
+     * Reads the whole input and passes every key-value pair to the handler
+     *
+     * @param handler
+     *            The consumer of the key-value pairs
+     * @throws IOException
+     *             Thrown when any error while reading the input
+     */
+    public void read(DataValueHandler handler) throws IOException
+    {
+        StringBuilder key = new StringBuilder();
+        int b;
+        while ((b = next()) != -1)
+        {
+            if (isWhitespace(b) || b == ';')
+                continue;
+            if (b == '/' && peek() == '/')
+            {
+                skipLine();
+                continue;
+            }
+
+            key.setLength(0);
+            while (b != -1 && b != '=' && b != '\n' && b != ';')
+            {
+                if (!isWhitespace(b))
+                    key.append((char) b);
+                b = next();
+            }
+            if (b != '=')
+                continue;
+
+            DataValueInput value = new DataValueInput(this);
+            handler.handleValue(key.toString(), value);
+            value.skip();
+        }
+    }
+
+    /**
+     *
+     * Closes the underlying stream
+     *
+     * @throws IOException
+     *             Thrown when any error while closing the stream
+     */
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    int next() throws IOException
+    {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    int peek() throws IOException
+    {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position] & 0xFF;
+    }
+
+    void skipLine() throws IOException
+    {
+        int b;
+        while ((b = next()) != -1 && b != '\n')
+            ;
+    }
+
+    private boolean fill() throws IOException
+    {
+        int count = in.read(buffer, 0, buffer.length);
+        while (count == 0)
+            count = in.read(buffer, 0, buffer.length);
+        if (count < 0)
+        {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+
+    static boolean isWhitespace(int b)
+    {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,117 @@
+package cmu.routing.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * The value of a key of an input file. A value is either the raw text of the
+ * file, or, when it was loaded from the parse cache, the numbers of an array
+ * value already decoded into a block of its smallest element type. Both are
+ * read the same way through a {@link NumberDecoder}, so the arrays are
+ * populated without caring how the value was stored.
+ *
+ */
+public class DataValue
+{
+    private final ByteBuffer bytes;
+    private final ElementType type;
+
+    private DataValue(ByteBuffer bytes, ElementType type)
+    {
+        this.bytes = bytes;
+        this.type = type;
+    }
+
+    /**
+     *
+     * @param bytes
+     *            The raw text of the value between its position and limit
+     * @return The value
+     */
+    public static DataValue text(ByteBuffer bytes)
+    {
+        return new DataValue(bytes, null);
+    }
+
+    /**
+     *
+     * @param type
+     *            The type every number is stored as
+     * @param bytes
+     *            The numbers of the value between its position and limit, in
+     *            big endian order
+     * @return The value
+     */
+    public static DataValue numbers(ElementType type, ByteBuffer bytes)
+    {
+        return new DataValue(bytes, type);
+    }
+
+    /**
+     *
+     * @return The type the numbers are stored as, or null when the value is
+     *         kept as text
+     */
+    public ElementType getType()
+    {
+        return type;
+    }
+
+    /**
+     *
+     * @return The bytes of the value between the position and limit of the
+     *         buffer
+     */
+    public ByteBuffer getBytes()
+    {
+        return bytes.duplicate();
+    }
+
+    /**
+     *
+     * @return The number of bytes of the value
+     */
+    public int size()
+    {
+        return bytes.remaining();
+    }
+
+    /**
+     *
+     * @return A decoder over the numbers of the value
+     */
+    public NumberDecoder decoder()
+    {
+        return new NumberDecoder(bytes, bytes.position(), bytes.limit(), type);
+    }
+
+    /**
+     *
+     * Used for the scalar values like the number of strings
+     *
+     * @return The value as a string
+     */
+    public String getText()
+    {
+        if (type != null)
+        {
+            StringBuilder text = new StringBuilder();
+            NumberDecoder decoder = decoder();
+            while (decoder.hasNext())
+            {
+                if (text.length() > 0)
+                    text.append(", ");
+                if (type == ElementType.DOUBLE)
+                    text.append(decoder.nextDouble());
+                else
+                    text.append(decoder.nextInt());
+            }
+            return "[" + text + "]";
+        }
+        ByteBuffer value = getBytes();
+        byte[] text = new byte[value.remaining()];
+        value.get(text);
+        return new String(text, StandardCharsets.US_ASCII).trim();
+    }
+}
@@ -0,0 +1,27 @@
+package cmu.routing.util;
+
+import java.io.IOException;
+
+/**
+ *
+ * Receives the key-value pairs of an input file while it is being read by
+ * the {@link DataFileReader}
+ *
+ */
+public interface DataValueHandler
+{
+    /**
+     *
+     * Called once for every key of the input file, in file order. The value
+     * is only readable for the duration of this call; whatever is not
+     * consumed is skipped by the reader afterwards.
+     *
+     * @param key
+     *            The name of the property
+     * @param value
+     *            The stream positioned at the start of the value
+     * @throws IOException
+     *             Thrown when any error while reading the value
+     */
+    void handleValue(String key, DataValueInput value) throws IOException;
+}
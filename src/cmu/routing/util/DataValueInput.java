@@ -0,0 +1,165 @@
+package cmu.routing.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ *
+ * The stream over a single value of an input file. It ends at the
+ * terminating <code>;</code> of the value, skips the comment lines inside
+ * the value and reports every line break or tab as a plain space.
+ *
+ */
+public class DataValueInput
+{
+    /* Some virtual machines reserve a few header words in an array */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final DataFileReader reader;
+    private boolean finished = false;
+
+    DataValueInput(DataFileReader reader)
+    {
+        this.reader = reader;
+    }
+
+    /**
+     *
+     * Reads the next character of the value
+     *
+     * @return The next character, or -1 at the end of the value
+     * @throws IOException
+     *             Thrown when any error while reading the input
+     */
+    public int read() throws IOException
+    {
+        if (finished)
+            return -1;
+
+        int b = reader.next();
+        if (b == -1 || b == ';')
+        {
+            finished = true;
+            return -1;
+        }
+        if (b == '/' && reader.peek() == '/')
+        {
+            reader.skipLine();
+            return ' ';
+        }
+        if (DataFileReader.isWhitespace(b))
+            return ' ';
+        return b;
+    }
+
+    /**
+     *
+     * Reads the rest of the value as a string. Spaces are removed and every
+     * line of the value is separated by a single space, the same way the
+     * values were stored in the Property object before.
+     *
+     * @return The value as a string
+     * @throws IOException
+     *             Thrown when any error while reading the input
+     */
+    public String readString() throws IOException
+    {
+        StringBuilder value = new StringBuilder();
+        boolean separate = false;
+        int b;
+        while ((b = read()) != -1)
+        {
+            if (b == ' ')
+            {
+                separate = value.length() > 0;
+                continue;
+            }
+            if (separate)
+            {
+                value.append(' ');
+                separate = false;
+            }
+            value.append((char) b);
+        }
+        return value.toString();
+    }
+
+    /**
+     *
+     * Reads the rest of the value as raw bytes. Comment lines are dropped and
+     * consecutive spaces are stored once. The bytes are not copied to an
+     * array of their exact length.
+     *
+     * @return The bytes of the value between the position and limit of the
+     *         buffer
+     * @throws IOException
+     *             Thrown when any error while reading the input, or when the
+     *             value is larger than an array can hold
+     */
+    public ByteBuffer readBytes() throws IOException
+    {
+        byte[] value = new byte[1024];
+        int length = 0;
+        int previous = ' ';
+        int b;
+        while ((b = read()) != -1)
+        {
+            if (b == ' ' && previous == ' ')
+                continue;
+            if (length == value.length)
+            {
+                if (length == MAX_ARRAY_SIZE)
+                    throw new IOException("The value is larger than "
+                            + MAX_ARRAY_SIZE + " bytes");
+                value = Arrays.copyOf(value, (int) Math.min(MAX_ARRAY_SIZE,
+                        2L * value.length));
+            }
+            value[length++] = (byte) b;
+            previous = b;
+        }
+        return ByteBuffer.wrap(value, 0, length);
+    }
+
+    /**
+     *
+     * Copies the rest of the value to a stream, the same bytes
+     * {@link #readBytes()} returns, without holding the value in memory
+     *
+     * @param output
+     *            The stream the bytes are written to
+     * @return The number of bytes written
+     * @throws IOException
+     *             Thrown when any error while reading the input or writing
+     *             the stream
+     */
+    public long copyTo(OutputStream output) throws IOException
+    {
+        long length = 0;
+        int previous = ' ';
+        int b;
+        while ((b = read()) != -1)
+        {
+            if (b == ' ' && previous == ' ')
+                continue;
+            output.write(b);
+            length++;
+            previous = b;
+        }
+        return length;
+    }
+
+    /**
+     *
+     * Skips the rest of the value
+     *
+     * @throws IOException
+     *             Thrown when any error while reading the input
+     */
+    public void skip() throws IOException
+    {
+        while (read() != -1)
+            ;
+    }
+}
@@ -0,0 +1,36 @@
+package cmu.routing.util;
+
+/**
+ *
+ * The type the values of a {@link NumberMatrix} are stored as. An input key
+ * declares the smallest type that holds all of its values exactly, so the
+ * arrays of mostly small whole numbers do not take eight bytes per value.
+ *
+ */
+public enum ElementType
+{
+    /** Whole numbers from -128 to 127, one byte per value */
+    BYTE(1),
+
+    /** Whole numbers from -32768 to 32767, two bytes per value */
+    SHORT(2),
+
+    /** Numbers in double precision, eight bytes per value */
+    DOUBLE(8);
+
+    private final int size;
+
+    private ElementType(int size)
+    {
+        this.size = size;
+    }
+
+    /**
+     *
+     * @return The number of bytes a value takes
+     */
+    public int getSize()
+    {
+        return size;
+    }
+}
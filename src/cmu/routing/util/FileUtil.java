@@ -1,15 +1,13 @@
 package cmu.routing.util;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.util.Properties;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import cmu.routing.constants.RoutingFileConstants;
 
@@ -20,11 +18,14 @@ import cmu.routing.constants.RoutingFileConstants;
  */
 public class FileUtil
 {
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
 
     /**
      * 
      * Used to read the input file containing the values of the real world
-     * routing problem. This method populates a Property object with the
+     * routing problem. This method populates a DataContents object with the
      * key-value pairs of the required properties.
      * 
      * 
@@ -39,18 +40,44 @@ public class FileUtil
      * @throws IOException
      *             Thrown when any error while finding or parsing the input file
      */
-    public static Properties readInputFile(String baseInputFile1,
+    public static DataContents readInputFile(String baseInputFile1,
             String incDataFile, String mechanism) throws IOException
     {
-        Properties keyValue = new Properties();
+        return readInputFile(baseInputFile1, incDataFile, mechanism, null);
+    }
+
+    /**
+     * 
+     * Same as {@link #readInputFile(String, String, String)}, but only the
+     * values of the given keys are kept. The other values are skipped while
+     * reading without being stored or decoded.
+     * 
+     * @param baseInputFile
+     *            The input file containing the data
+     * @param incDataFile
+     *            The optional input data file to override the data of the base
+     *            input file
+     * @param mechanism
+     *            The mechanism number
+     * @param keys
+     *            The keys needed by the model, or null for all keys
+     * @return The key-value pair of the required properties
+     * @throws IOException
+     *             Thrown when any error while finding or parsing the input file
+     */
+    public static DataContents readInputFile(String baseInputFile1,
+            String incDataFile, String mechanism, Set<String> keys)
+            throws IOException
+    {
+        DataContents keyValue = new DataContents();
         try
         {
-            loadFile(baseInputFile1, keyValue);
+            loadFile(baseInputFile1, keyValue, keys);
             if (incDataFile != null && incDataFile.length() != 0)
             {
-                loadFile(incDataFile, keyValue);
+                loadFile(incDataFile, keyValue, keys);
             }
-            loadFile(RoutingFileConstants.COMMON_INPUT_FILE_PREFIX + mechanism + ".dat", keyValue);
+            loadFile(RoutingFileConstants.COMMON_INPUT_FILE_PREFIX + mechanism + ".dat", keyValue, keys);
 
         } catch (FileNotFoundException e)
         {
@@ -64,12 +91,18 @@ public class FileUtil
         return keyValue;
     }
     
-    public static Properties readBaseFile(String baseInputFile1) throws IOException
+    public static DataContents readBaseFile(String baseInputFile1) throws IOException
     {
-        Properties keyValue = new Properties();
+        return readBaseFile(baseInputFile1, null);
+    }
+
+    public static DataContents readBaseFile(String baseInputFile1, Set<String> keys)
+            throws IOException
+    {
+        DataContents keyValue = new DataContents();
         try
         {
-            loadFile(baseInputFile1, keyValue);
+            loadFile(baseInputFile1, keyValue, keys);
         } catch (FileNotFoundException e)
         {
             System.out.println("Input file not found");
@@ -82,12 +115,18 @@ public class FileUtil
         return keyValue;
     }
     
-    public static Properties readHatFile(String baseInputFile1) throws IOException
+    public static DataContents readHatFile(String baseInputFile1) throws IOException
     {
-        Properties keyValue = new Properties();
+        return readHatFile(baseInputFile1, null);
+    }
+
+    public static DataContents readHatFile(String baseInputFile1, Set<String> keys)
+            throws IOException
+    {
+        DataContents keyValue = new DataContents();
         try
         {
-            loadFile(baseInputFile1, keyValue);
+            loadFile(baseInputFile1, keyValue, keys);
         } catch (FileNotFoundException e)
         {
             System.out.println("Input file not found");
@@ -100,35 +139,117 @@ public class FileUtil
         return keyValue;
     }
 
-    private static void loadFile(String inputFile, Properties keyValue)
-            throws IOException
+    /**
+     * 
+     * Gives the binary cache file of a model. The cache is kept next to the
+     * base input file, one file for every model and mechanism.
+     * 
+     * @param baseInputFile
+     *            The base input file of the model
+     * @param modelName
+     *            Name of the model
+     * @param mechanism
+     *            The mechanism number
+     * @return The cache file
+     */
+    public static File getCacheFile(String baseInputFile, String modelName,
+            String mechanism)
     {
-        File input = new File(inputFile);
-        BufferedReader bReader = new BufferedReader(new InputStreamReader(
-                new FileInputStream(input)));
-        File tempInput = new File(inputFile + ".tmp");
-        BufferedWriter bWriter = new BufferedWriter(new OutputStreamWriter(
-                new FileOutputStream(tempInput)));
+        return new File(new File(baseInputFile).getAbsoluteFile()
+                .getParentFile(), modelName + "_" + mechanism + ".cache");
+    }
 
-        String line = null;
-        while ((line = bReader.readLine()) != null)
+    /**
+     * 
+     * Gives the file an input file is read from. An input file that does not
+     * exist is read from its compressed copy with the <code>.gz</code>
+     * extension, if there is one.
+     * 
+     * @param inputFile
+     *            The input file
+     * @return The file holding the data
+     */
+    public static File resolveInputFile(String inputFile)
+    {
+        File file = new File(inputFile);
+        if (!file.exists())
         {
-            line = line.replace(" ", "");
-            if (line.startsWith("//") || (line.length() == 0))
-            {
-            } else if (line.endsWith(";"))
+            File compressed = new File(inputFile + GZIP_SUFFIX);
+            if (compressed.isFile())
+                return compressed;
+        }
+        return file;
+    }
+
+    /**
+     * 
+     * Opens an input file for reading. Files compressed with gzip are
+     * recognized by their header and decompressed while they are read, so no
+     * decompressed copy is written to disk.
+     * 
+     * @param inputFile
+     *            The input file
+     * @return The stream of the contents of the file
+     * @throws IOException
+     *             Thrown when any error while finding or opening the file
+     */
+    public static InputStream openInputFile(String inputFile)
+            throws IOException
+    {
+        PushbackInputStream input = new PushbackInputStream(
+                new FileInputStream(resolveInputFile(inputFile)), 2);
+        try
+        {
+            byte[] magic = new byte[2];
+            int count = 0;
+            while (count < magic.length)
             {
-                line = line.substring(0, line.length() - 1);
-                bWriter.write(line + "\n");
-            } else
-                bWriter.write(line + " \\\n");
+                int read = input.read(magic, count, magic.length - count);
+                if (read < 0)
+                    break;
+                count += read;
+            }
+            input.unread(magic, 0, count);
+            if (count == magic.length
+                    && ((magic[0] & 0xff) | (magic[1] & 0xff) << 8) == GZIP_MAGIC)
+                return new GZIPInputStream(input, GZIP_BUFFER_SIZE);
+            return input;
+        } catch (IOException e)
+        {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 
+     * Reads an input file in a single pass and passes every key-value pair to
+     * the handler as soon as it is read. Compressed input files are read as
+     * described in {@link #openInputFile(String)}.
+     * 
+     * @param inputFile
+     *            The input file containing the data
+     * @param handler
+     *            The consumer of the key-value pairs
+     * @throws IOException
+     *             Thrown when any error while finding or reading the file
+     */
+    public static void readFile(String inputFile, DataValueHandler handler)
+            throws IOException
+    {
+        DataFileReader reader = new DataFileReader(openInputFile(inputFile));
+        try
+        {
+            reader.read(handler);
+        } finally
+        {
+            reader.close();
         }
-        bReader.close();
-        bWriter.close();
+    }
 
-        bReader = new BufferedReader(new InputStreamReader(new FileInputStream(
-                tempInput)));
-        keyValue.load(bReader);
-        tempInput.delete();
+    private static void loadFile(String inputFile, DataContents keyValue,
+            Set<String> keys) throws IOException
+    {
+        ParseCache.load(inputFile, keyValue, keys);
     }
 }
@@ -0,0 +1,148 @@
+package cmu.routing.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Collects the number of elements and the bytes of the arrays held by the
+ * routing data, and prints them together with the use of the heap. The
+ * report is meant for sizing the heap of a run before it is started.
+ *
+ * Bytes kept outside the heap by a {@link Storage} other than the heap are
+ * reported apart, since they do not count against the maximum heap size.
+ *
+ */
+public class MemoryReport
+{
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final List<String> names = new ArrayList<String>();
+    private final List<long[]> sizes = new ArrayList<long[]>();
+    private long heapBytes = 0;
+    private long offHeapBytes = 0;
+
+    /**
+     *
+     * @param name
+     *            The name of the field
+     * @param elements
+     *            Number of elements held
+     * @param bytes
+     *            Number of bytes held on the heap
+     */
+    public void add(String name, long elements, long bytes)
+    {
+        add(name, elements, bytes, false);
+    }
+
+    private void add(String name, long elements, long bytes, boolean offHeap)
+    {
+        names.add(offHeap ? name + " (off heap)" : name);
+        sizes.add(new long[] { elements, bytes });
+        if (offHeap)
+            offHeapBytes += bytes;
+        else
+            heapBytes += bytes;
+    }
+
+    public void add(String name, int[] array)
+    {
+        if (array != null)
+            add(name, array.length, 4L * array.length);
+    }
+
+    public void add(String name, double[] array)
+    {
+        if (array != null)
+            add(name, array.length, 8L * array.length);
+    }
+
+    public void add(String name, NumberMatrix matrix)
+    {
+        if (matrix != null)
+            add(name, (long) matrix.getRows() * matrix.getCols(),
+                    matrix.getBytes(), matrix.getStorage() != Storage.HEAP);
+    }
+
+    /**
+     *
+     * Adds a sparse matrix with its row and column index
+     *
+     * @param name
+     *            The name of the field
+     * @param matrix
+     *            The matrix
+     */
+    public void add(String name, SparseMatrix matrix)
+    {
+        if (matrix != null)
+            add(name, matrix.getNonZeros(), matrix.getBytes());
+    }
+
+    /**
+     *
+     * Adds only the values of a sparse matrix, for a matrix sharing the
+     * pattern of another matrix that is reported on its own
+     *
+     * @param name
+     *            The name of the field
+     * @param matrix
+     *            The matrix
+     */
+    public void addValues(String name, SparseMatrix matrix)
+    {
+        if (matrix != null)
+            add(name, matrix.getNonZeros(), 8L * matrix.getNonZeros());
+    }
+
+    /**
+     *
+     * Prints every field added so far, the totals and the use of the heap
+     *
+     * @param phase
+     *            The phase of the run the report is printed after
+     */
+    public void print(String phase)
+    {
+        System.out.println("Memory of the data after " + phase + ":");
+        for (int i = 0; i < names.size(); i++)
+        {
+            long[] size = sizes.get(i);
+            System.out.println("    " + names.get(i) + ": " + size[0]
+                    + " elements, " + size[1] + " bytes");
+        }
+        System.out.println("    total: " + heapBytes + " bytes on the heap, "
+                + offHeapBytes + " bytes off the heap");
+        printHeap(phase);
+    }
+
+    /**
+     *
+     * Prints the used, committed, peak and maximum size of the heap. The peak
+     * is the sum of the peaks of all heap pools since the start of the run.
+     *
+     * @param phase
+     *            The phase of the run the heap is printed after
+     */
+    public static void printHeap(String phase)
+    {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean()
+                .getHeapMemoryUsage();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.println("Heap after " + phase + ": used "
+                + heap.getUsed() / MEGABYTE + " MB, committed "
+                + heap.getCommitted() / MEGABYTE + " MB, peak "
+                + peak / MEGABYTE + " MB, max "
+                + (heap.getMax() < 0 ? "unlimited" : heap.getMax() / MEGABYTE + " MB"));
+    }
+}
@@ -0,0 +1,387 @@
+package cmu.routing.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Decodes the numbers of an array value directly from its bytes into
+ * primitive arrays. The numbers may be separated by any of
+ * <code>",[] "</code>, tabs or line breaks. No intermediate string is created
+ * for a number, except for the rare numbers that cannot be converted exactly
+ * by the fast path.
+ *
+ * A value loaded from the parse cache holds its numbers already decoded in
+ * an {@link ElementType}, and is read the same way without any parsing.
+ *
+ */
+public class NumberDecoder
+{
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+            1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final ByteBuffer data;
+    private final ElementType type;
+    private final int size;
+    private final int end;
+    private int position;
+
+    /**
+     *
+     * @param data
+     *            The bytes holding the value
+     * @param start
+     *            Index of the first byte of the window
+     * @param end
+     *            Index after the last byte of the window
+     */
+    public NumberDecoder(byte[] data, int start, int end)
+    {
+        this(ByteBuffer.wrap(data), start, end);
+    }
+
+    /**
+     *
+     * @param window
+     *            The buffer holding the value between its position and limit
+     */
+    public NumberDecoder(ByteBuffer window)
+    {
+        this(window, window.position(), window.limit());
+    }
+
+    NumberDecoder(ByteBuffer data, int start, int end)
+    {
+        this(data, start, end, null);
+    }
+
+    NumberDecoder(ByteBuffer data, int start, int end, ElementType type)
+    {
+        this.data = data;
+        this.type = type;
+        this.size = type == null ? 1 : type.getSize();
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     *
+     * @return true if there is one more number in the window
+     */
+    public boolean hasNext()
+    {
+        if (type != null)
+            return end - position >= size;
+        while (position < end && isSeparator(data.get(position)))
+            position++;
+        return position < end;
+    }
+
+    /**
+     *
+     * @return The index of the next byte to be decoded
+     */
+    public int position()
+    {
+        return position;
+    }
+
+    /**
+     *
+     * Counts the numbers left in the window without decoding them
+     *
+     * @return The number of numbers left
+     */
+    public long count()
+    {
+        if (type != null)
+        {
+            long count = (end - position) / size;
+            position += count * size;
+            return count;
+        }
+        long count = 0;
+        boolean inToken = false;
+        for (; position < end; position++)
+        {
+            boolean separator = isSeparator(data.get(position));
+            if (!separator && !inToken)
+                count++;
+            inToken = !separator;
+        }
+        return count;
+    }
+
+    /**
+     *
+     * Moves past the next number of the window without decoding it. The
+     * caller checks {@link #hasNext()} first.
+     */
+    public void skip()
+    {
+        if (type != null)
+        {
+            position += size;
+            return;
+        }
+        hasNext();
+        while (position < end && !isSeparator(data.get(position)))
+            position++;
+    }
+
+    /**
+     *
+     * Decodes the next number of the window. The caller checks
+     * {@link #hasNext()} first.
+     *
+     * @return The decoded number
+     * @throws NumberFormatException
+     *             Thrown when the next token is not a number
+     */
+    public double nextDouble()
+    {
+        if (type != null)
+            return nextStored();
+        hasNext();
+        int start = position;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int exponent = 0;
+        boolean exact = true;
+
+        byte b = data.get(position);
+        if (b == '-' || b == '+')
+        {
+            negative = b == '-';
+            position++;
+        }
+        while (position < end && isDigit(b = data.get(position)))
+        {
+            if (mantissa < MAX_EXACT_MANTISSA / 10)
+            {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+            } else
+                exact = false;
+            position++;
+        }
+        if (position < end && data.get(position) == '.')
+        {
+            position++;
+            while (position < end && isDigit(b = data.get(position)))
+            {
+                if (mantissa < MAX_EXACT_MANTISSA / 10)
+                {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    scale++;
+                } else
+                    exact = false;
+                position++;
+            }
+        }
+        if (position < end && ((b = data.get(position)) == 'e' || b == 'E'))
+        {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end
+                    && ((b = data.get(position)) == '-' || b == '+'))
+            {
+                negativeExponent = b == '-';
+                position++;
+            }
+            while (position < end && isDigit(b = data.get(position)))
+            {
+                if (exponent < 10000)
+                    exponent = exponent * 10 + (b - '0');
+                position++;
+            }
+            if (negativeExponent)
+                exponent = -exponent;
+        }
+        while (position < end && !isSeparator(data.get(position)))
+        {
+            exact = false;
+            position++;
+        }
+
+        int power = exponent - scale;
+        if (exact && digits > 0 && power >= -22 && power <= 22)
+        {
+            double value = power < 0 ? mantissa / POWERS_OF_TEN[-power]
+                    : mantissa * POWERS_OF_TEN[power];
+            return negative ? -value : value;
+        }
+        return parseSlow(start, position);
+    }
+
+    /**
+     *
+     * Decodes the next number of the window as an integer
+     *
+     * @return The decoded number
+     */
+    public int nextInt()
+    {
+        return (int) nextDouble();
+    }
+
+    /**
+     *
+     * Decodes the next numbers of the window into the target array
+     *
+     * @param target
+     *            The array to be filled
+     * @param offset
+     *            The first index of the target to be written
+     * @param length
+     *            The maximum number of values to be decoded
+     * @return The number of values that were decoded
+     */
+    public int decode(double[] target, int offset, int length)
+    {
+        int count = 0;
+        while (count < length && hasNext())
+            target[offset + count++] = nextDouble();
+        return count;
+    }
+
+    /**
+     *
+     * Decodes the next numbers of the window into the target array
+     *
+     * @param target
+     *            The array to be filled
+     * @param offset
+     *            The first index of the target to be written
+     * @param length
+     *            The maximum number of values to be decoded
+     * @return The number of values that were decoded
+     */
+    public int decode(int[] target, int offset, int length)
+    {
+        int count = 0;
+        while (count < length && hasNext())
+            target[offset + count++] = nextInt();
+        return count;
+    }
+
+    /**
+     *
+     * Decodes the next numbers of the window into the target array
+     *
+     * @param target
+     *            The array to be filled
+     * @param offset
+     *            The first index of the target to be written
+     * @param length
+     *            The maximum number of values to be decoded
+     * @return The number of values that were decoded
+     */
+    public int decode(byte[] target, int offset, int length)
+    {
+        int count = 0;
+        while (count < length && hasNext())
+            target[offset + count++] = (byte) nextInt();
+        return count;
+    }
+
+    /**
+     *
+     * Decodes the numbers left in the window to find the smallest type that
+     * holds all of them exactly
+     *
+     * @return The smallest type of the numbers
+     * @throws NumberFormatException
+     *             Thrown when a token is not a number
+     */
+    public ElementType findType()
+    {
+        ElementType found = ElementType.BYTE;
+        while (found != ElementType.DOUBLE && hasNext())
+        {
+            double value = nextDouble();
+            if (found == ElementType.BYTE && (byte) value != value)
+                found = ElementType.SHORT;
+            if (found == ElementType.SHORT && (short) value != value)
+                found = ElementType.DOUBLE;
+        }
+        return found;
+    }
+
+    /**
+     *
+     * Decodes the next numbers of the window into a block of the given type
+     *
+     * @param target
+     *            The block to be filled, written at absolute positions only
+     * @param type
+     *            The type of the numbers of the block, which must hold every
+     *            number exactly
+     * @param offset
+     *            The index of the first number of the block to be written
+     * @param length
+     *            The maximum number of values to be decoded
+     * @return The number of values that were decoded
+     */
+    public int decode(ByteBuffer target, ElementType type, int offset,
+            int length)
+    {
+        int count = 0;
+        while (count < length && hasNext())
+        {
+            double value = nextDouble();
+            int index = offset + count++;
+            switch (type)
+            {
+            case BYTE:
+                target.put(index, (byte) value);
+                break;
+            case SHORT:
+                target.putShort(index << 1, (short) value);
+                break;
+            default:
+                target.putDouble(index << 3, value);
+            }
+        }
+        return count;
+    }
+
+    private double nextStored()
+    {
+        int at = position;
+        position += size;
+        switch (type)
+        {
+        case BYTE:
+            return data.get(at);
+        case SHORT:
+            return data.getShort(at);
+        default:
+            return data.getDouble(at);
+        }
+    }
+
+    private double parseSlow(int start, int stop)
+    {
+        byte[] token = new byte[stop - start];
+        for (int i = 0; i < token.length; i++)
+            token[i] = data.get(start + i);
+        return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    static boolean isSeparator(byte b)
+    {
+        return b == ',' || b == ' ' || b == '[' || b == ']' || b == '\n'
+                || b == '\r' || b == '\t';
+    }
+}
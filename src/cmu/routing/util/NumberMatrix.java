@@ -0,0 +1,420 @@
+package cmu.routing.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ *
+ * Holds a dense 2-dimensional array of numbers in the element type declared
+ * for its input key. All types are read the same way through
+ * {@link #get(int, int)}, so the equation builders do not depend on how the
+ * values are stored.
+ *
+ * Values of different cells may be set from different threads, as long as
+ * no two threads set the same cell.
+ *
+ * The values are kept in Java arrays, or outside the heap in direct or file
+ * mapped buffers, as chosen by the {@link Storage} of the matrix.
+ *
+ */
+public abstract class NumberMatrix
+{
+    private final int rows;
+    private final int cols;
+
+    NumberMatrix(int rows, int cols)
+    {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     *
+     * Creates a matrix with all values set to 0
+     *
+     * @param type
+     *            The type the values are stored as
+     * @param rows
+     *            Number of rows
+     * @param cols
+     *            Number of columns
+     * @return The matrix
+     */
+    public static NumberMatrix create(ElementType type, int rows, int cols)
+    {
+        return create(type, rows, cols, Storage.HEAP, null);
+    }
+
+    /**
+     *
+     * Creates a matrix with all values set to 0, kept in the given storage.
+     * When the storage file of a mapped matrix can not be created, the
+     * values are kept in direct buffers instead.
+     *
+     * @param type
+     *            The type the values are stored as
+     * @param rows
+     *            Number of rows
+     * @param cols
+     *            Number of columns
+     * @param storage
+     *            Where the values are kept
+     * @param directory
+     *            The directory of the storage file of a mapped matrix, or
+     *            null for the default temporary directory
+     * @return The matrix
+     */
+    public static NumberMatrix create(ElementType type, int rows, int cols,
+            Storage storage, File directory)
+    {
+        if (storage == Storage.MAPPED)
+        {
+            try
+            {
+                return new BufferMatrix(type, rows, cols, Storage.MAPPED,
+                        mapRows(type, rows, cols, directory));
+            } catch (IOException e)
+            {
+                System.out.println("Not able to map the storage file of a "
+                        + rows + " x " + cols + " matrix, direct buffers are used");
+            }
+        }
+        if (storage != Storage.HEAP)
+        {
+            ByteBuffer[] buffers = new ByteBuffer[rows];
+            for (int i = 0; i < rows; i++)
+                buffers[i] = ByteBuffer.allocateDirect(cols * type.getSize())
+                        .order(ByteOrder.nativeOrder());
+            return new BufferMatrix(type, rows, cols, Storage.DIRECT, buffers);
+        }
+
+        switch (type)
+        {
+        case BYTE:
+            return new ByteMatrix(rows, cols);
+        case SHORT:
+            return new ShortMatrix(rows, cols);
+        default:
+            return new DoubleMatrix(rows, cols);
+        }
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /**
+     *
+     * @return The type the values are stored as
+     */
+    public abstract ElementType getType();
+
+    /**
+     *
+     * @return Where the values are kept
+     */
+    public Storage getStorage()
+    {
+        return Storage.HEAP;
+    }
+
+    /**
+     *
+     * @return The number of bytes taken by the values
+     */
+    public long getBytes()
+    {
+        return (long) rows * cols * getType().getSize();
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @param col
+     *            The column
+     * @return The value at the row and column
+     */
+    public abstract double get(int row, int col);
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @param col
+     *            The column
+     * @param value
+     *            The value to be stored
+     * @throws IllegalArgumentException
+     *             Thrown when the element type can not hold the value
+     */
+    public abstract void set(int row, int col, double value);
+
+    /**
+     *
+     * Copies a whole row at once from a buffer holding the values in the
+     * element type of the matrix, in the byte order of the buffer
+     *
+     * @param row
+     *            The row
+     * @param values
+     *            The values of the row, read from the position of the buffer
+     *            which is moved past them
+     */
+    public abstract void setRow(int row, ByteBuffer values);
+
+    /*
+     * Every row is mapped on its own, so a matrix may be larger than a single
+     * buffer can address. The file is deleted once it is mapped; the mapping
+     * keeps the pages until the buffers are collected.
+     */
+    private static ByteBuffer[] mapRows(ElementType type, int rows, int cols,
+            File directory) throws IOException
+    {
+        long rowSize = (long) cols * type.getSize();
+        File file = File.createTempFile("matrix", ".values", directory);
+        try
+        {
+            RandomAccessFile output = new RandomAccessFile(file, "rw");
+            try
+            {
+                output.setLength(rowSize * rows);
+                FileChannel channel = output.getChannel();
+                ByteBuffer[] buffers = new ByteBuffer[rows];
+                for (int i = 0; i < rows; i++)
+                    buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            rowSize * i, rowSize).order(ByteOrder.nativeOrder());
+                return buffers;
+            } finally
+            {
+                output.close();
+            }
+        } finally
+        {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    IllegalArgumentException notHeld(double value)
+    {
+        return new IllegalArgumentException("The value " + value
+                + " can not be held as " + getType());
+    }
+
+    private static class ByteMatrix extends NumberMatrix
+    {
+        private final byte[][] values;
+
+        ByteMatrix(int rows, int cols)
+        {
+            super(rows, cols);
+            values = new byte[rows][cols];
+        }
+
+        @Override
+        public ElementType getType()
+        {
+            return ElementType.BYTE;
+        }
+
+        @Override
+        public double get(int row, int col)
+        {
+            return values[row][col];
+        }
+
+        @Override
+        public void set(int row, int col, double value)
+        {
+            byte stored = (byte) value;
+            if (stored != value)
+                throw notHeld(value);
+            values[row][col] = stored;
+        }
+
+        @Override
+        public void setRow(int row, ByteBuffer values)
+        {
+            values.get(this.values[row]);
+        }
+    }
+
+    private static class ShortMatrix extends NumberMatrix
+    {
+        private final short[][] values;
+
+        ShortMatrix(int rows, int cols)
+        {
+            super(rows, cols);
+            values = new short[rows][cols];
+        }
+
+        @Override
+        public ElementType getType()
+        {
+            return ElementType.SHORT;
+        }
+
+        @Override
+        public double get(int row, int col)
+        {
+            return values[row][col];
+        }
+
+        @Override
+        public void set(int row, int col, double value)
+        {
+            short stored = (short) value;
+            if (stored != value)
+                throw notHeld(value);
+            values[row][col] = stored;
+        }
+
+        @Override
+        public void setRow(int row, ByteBuffer values)
+        {
+            values.asShortBuffer().get(this.values[row]);
+            values.position(values.position() + (getCols() << 1));
+        }
+    }
+
+    private static class DoubleMatrix extends NumberMatrix
+    {
+        private final double[][] values;
+
+        DoubleMatrix(int rows, int cols)
+        {
+            super(rows, cols);
+            values = new double[rows][cols];
+        }
+
+        @Override
+        public ElementType getType()
+        {
+            return ElementType.DOUBLE;
+        }
+
+        @Override
+        public double get(int row, int col)
+        {
+            return values[row][col];
+        }
+
+        @Override
+        public void set(int row, int col, double value)
+        {
+            values[row][col] = value;
+        }
+
+        @Override
+        public void setRow(int row, ByteBuffer values)
+        {
+            values.asDoubleBuffer().get(this.values[row]);
+            values.position(values.position() + (getCols() << 3));
+        }
+    }
+
+    /*
+     * The values are read and written at absolute positions only, so the
+     * buffers are shared between threads without their positions changing.
+     */
+    private static class BufferMatrix extends NumberMatrix
+    {
+        private final ElementType type;
+        private final Storage storage;
+        private final ByteBuffer[] values;
+
+        BufferMatrix(ElementType type, int rows, int cols, Storage storage,
+                ByteBuffer[] values)
+        {
+            super(rows, cols);
+            this.type = type;
+            this.storage = storage;
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getType()
+        {
+            return type;
+        }
+
+        @Override
+        public Storage getStorage()
+        {
+            return storage;
+        }
+
+        @Override
+        public double get(int row, int col)
+        {
+            ByteBuffer buffer = values[row];
+            switch (type)
+            {
+            case BYTE:
+                return buffer.get(col);
+            case SHORT:
+                return buffer.getShort(col << 1);
+            default:
+                return buffer.getDouble(col << 3);
+            }
+        }
+
+        @Override
+        public void set(int row, int col, double value)
+        {
+            ByteBuffer buffer = values[row];
+            switch (type)
+            {
+            case BYTE:
+                byte b = (byte) value;
+                if (b != value)
+                    throw notHeld(value);
+                buffer.put(col, b);
+                break;
+            case SHORT:
+                short s = (short) value;
+                if (s != value)
+                    throw notHeld(value);
+                buffer.putShort(col << 1, s);
+                break;
+            default:
+                buffer.putDouble(col << 3, value);
+            }
+        }
+
+        /* The views convert the byte order when it differs */
+        @Override
+        public void setRow(int row, ByteBuffer values)
+        {
+            ByteBuffer buffer = this.values[row].duplicate().order(
+                    this.values[row].order());
+            int length = getCols() * type.getSize();
+            ByteBuffer source = values.duplicate().order(values.order());
+            source.limit(source.position() + length);
+            switch (type)
+            {
+            case BYTE:
+                buffer.put(source);
+                break;
+            case SHORT:
+                buffer.asShortBuffer().put(source.asShortBuffer());
+                break;
+            default:
+                buffer.asDoubleBuffer().put(source.asDoubleBuffer());
+            }
+            values.position(values.position() + length);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package cmu.routing.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * Decodes a single large array value on all cores. The value is split into
+ * chunks at number boundaries, the numbers of every chunk are counted to
+ * find the index of its first number in the target, and then the chunks are
+ * decoded in parallel, each into its own part of the target. The numbers of
+ * a value loaded from the parse cache are already decoded, and its chunks
+ * are split at element boundaries.
+ *
+ */
+public class ParallelDecoder
+{
+    /* Values smaller than this are decoded on the calling thread */
+    static final int MIN_PARALLEL_SIZE = 1 << 22;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private final ByteBuffer data;
+    private final ElementType type;
+    private final int[] bounds;
+    private final long[] offsets;
+    private boolean counted = false;
+
+    /**
+     *
+     * @param value
+     *            The value to be decoded
+     */
+    public ParallelDecoder(DataValue value)
+    {
+        this.data = value.getBytes();
+        this.type = value.getType();
+        int size = type == null ? 1 : type.getSize();
+        int start = data.position();
+        int end = data.limit();
+        int chunks = (int) Math.max(1, Math.min(ForkJoinPool.commonPool()
+                .getParallelism() * 4L, (end - start) / MIN_CHUNK_SIZE));
+        bounds = new int[chunks + 1];
+        bounds[0] = start;
+        for (int i = 1; i < chunks; i++)
+        {
+            int bound = start + (int) ((long) (end - start) * i / chunks);
+            bound -= (bound - start) % size;
+            while (type == null && bound < end
+                    && !NumberDecoder.isSeparator(data.get(bound)))
+                bound++;
+            bounds[i] = Math.max(bound, bounds[i - 1]);
+        }
+        bounds[chunks] = end;
+        offsets = new long[chunks + 1];
+    }
+
+    /**
+     *
+     * @param value
+     *            The value to be decoded
+     * @return true if the value is large enough to be decoded in parallel
+     *         and there is more than one core to decode it on
+     */
+    public static boolean isParallel(DataValue value)
+    {
+        return value.size() >= MIN_PARALLEL_SIZE
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     *
+     * Used to populate the 2-dimensional array with the numbers of the value.
+     * Missing trailing values are set to -1.
+     *
+     * @param array
+     *            The array to be populated
+     */
+    public void populateArray(final double[][] array)
+    {
+        countChunks();
+
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                NumberDecoder decoder = decoder(chunk);
+                int cols = array.length == 0 ? 0 : array[0].length;
+                long index = offsets[chunk];
+                long last = Math.min(offsets[chunk + 1], (long) array.length
+                        * cols);
+                while (index < last)
+                {
+                    int row = (int) (index / cols);
+                    int col = (int) (index % cols);
+                    int count = (int) Math.min(cols - col, last - index);
+                    int decoded = decoder.decode(array[row], col, count);
+                    if (decoded == 0)
+                        break;
+                    index += decoded;
+                }
+            }
+        });
+
+        int cols = array.length == 0 ? 0 : array[0].length;
+        for (long index = offsets[offsets.length - 1]; index < (long) array.length
+                * cols; index++)
+            array[(int) (index / cols)][(int) (index % cols)] = -1;
+    }
+
+    /**
+     *
+     * Used to populate the array of whole numbers with the numbers of the
+     * value. Missing trailing values are set to -1.
+     *
+     * @param array
+     *            The array to be populated
+     */
+    public void populateArray(final int[] array)
+    {
+        countChunks();
+
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                NumberDecoder decoder = decoder(chunk);
+                int first = (int) Math.min(offsets[chunk], array.length);
+                int last = (int) Math.min(offsets[chunk + 1], array.length);
+                decoder.decode(array, first, last - first);
+            }
+        });
+
+        long decoded = offsets[offsets.length - 1];
+        if (decoded < array.length)
+            Arrays.fill(array, (int) decoded, array.length, -1);
+    }
+
+    /**
+     *
+     * Used to populate the columns of the matrix with the numbers of the
+     * value, which holds the columns in another order. Missing
+     * trailing values are set to -1.
+     *
+     * @param matrix
+     *            The matrix to be populated
+     * @param columnMap
+     *            For every column of the value the column of the matrix it is
+     *            stored in, or -1 to skip it
+     */
+    public void populateArray(final NumberMatrix matrix,
+            final int[] columnMap)
+    {
+        countChunks();
+
+        final int cols = columnMap.length;
+        final long size = (long) matrix.getRows() * cols;
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                NumberDecoder decoder = decoder(chunk);
+                long last = Math.min(offsets[chunk + 1], size);
+                for (long index = offsets[chunk]; index < last; index++)
+                {
+                    int col = columnMap[(int) (index % cols)];
+                    if (col >= 0)
+                        matrix.set((int) (index / cols), col,
+                                decoder.nextDouble());
+                    else
+                        decoder.skip();
+                }
+            }
+        });
+
+        for (long index = offsets[offsets.length - 1]; index < size; index++)
+        {
+            int col = columnMap[(int) (index % cols)];
+            if (col >= 0)
+                matrix.set((int) (index / cols), col, -1);
+        }
+    }
+
+    /**
+     *
+     * Used to read the numbers of the value into a sparse matrix. Every chunk
+     * collects its own nonzero values, which are then joined in order.
+     * Missing trailing values are set to -1.
+     *
+     * @param rows
+     *            Number of rows
+     * @param cols
+     *            Number of columns
+     * @return The sparse matrix holding the values
+     */
+    public SparseMatrix readMatrix(final int rows, final int cols)
+    {
+        countChunks();
+
+        final long size = (long) rows * cols;
+        final SparseMatrix.Builder[] parts = new SparseMatrix.Builder[bounds.length - 1];
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                NumberDecoder decoder = decoder(chunk);
+                SparseMatrix.Builder part = new SparseMatrix.Builder(rows,
+                        cols);
+                long last = Math.min(offsets[chunk + 1], size);
+                for (long index = offsets[chunk]; index < last; index++)
+                    part.add((int) (index / cols), (int) (index % cols),
+                            decoder.nextDouble());
+                parts[chunk] = part;
+            }
+        });
+
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(rows, cols);
+        for (SparseMatrix.Builder part : parts)
+            builder.append(part);
+        for (long index = offsets[offsets.length - 1]; index < size; index++)
+            builder.add((int) (index / cols), (int) (index % cols), -1);
+        return builder.build();
+    }
+
+    /**
+     *
+     * Used to read only the numbers of the value at the nonzero positions of
+     * a matrix. Every chunk decodes the positions that fall into it and skips
+     * the other numbers. Missing trailing values are set to -1.
+     *
+     * @param pattern
+     *            The matrix holding the positions to be read
+     * @return The sparse matrix holding the values
+     */
+    public SparseMatrix readMatrixValues(final SparseMatrix pattern)
+    {
+        countChunks();
+
+        final int cols = pattern.getCols();
+        final double[] values = new double[pattern.getNonZeros()];
+        Arrays.fill(values, -1);
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                if (cols == 0)
+                    return;
+                NumberDecoder decoder = decoder(chunk);
+                long index = offsets[chunk];
+                long last = offsets[chunk + 1];
+                int row = (int) (index / cols);
+                int entry = pattern.entryAt(row, (int) (index % cols));
+                for (; entry < values.length; entry++)
+                {
+                    while (entry >= pattern.rowEnd(row))
+                        row++;
+                    long target = (long) row * cols + pattern.column(entry);
+                    if (target >= last)
+                        break;
+                    for (; index < target; index++)
+                        decoder.skip();
+                    values[entry] = decoder.nextDouble();
+                    index++;
+                }
+            }
+        });
+        return pattern.withValues(values);
+    }
+
+    /**
+     *
+     * Used to find the smallest type that holds every number of the value
+     * exactly
+     *
+     * @return The smallest type of the numbers
+     * @throws NumberFormatException
+     *             Thrown when a token of the value is not a number
+     */
+    public ElementType findType()
+    {
+        final ElementType[] types = new ElementType[bounds.length - 1];
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                types[chunk] = decoder(chunk).findType();
+            }
+        });
+        ElementType found = ElementType.BYTE;
+        for (ElementType type : types)
+            if (type.getSize() > found.getSize())
+                found = type;
+        return found;
+    }
+
+    /**
+     *
+     * @return The number of numbers of the value
+     */
+    public long count()
+    {
+        countChunks();
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     *
+     * Used to decode the numbers of the value into a block of the given
+     * type. Every chunk writes its own part of the block.
+     *
+     * @param target
+     *            The block to be filled, which must hold every number of the
+     *            value
+     * @param type
+     *            The type of the numbers of the block
+     * @return The number of values that were decoded
+     */
+    public long decode(final ByteBuffer target, final ElementType type)
+    {
+        countChunks();
+
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                decoder(chunk).decode(target, type, (int) offsets[chunk],
+                        (int) (offsets[chunk + 1] - offsets[chunk]));
+            }
+        });
+        return offsets[offsets.length - 1];
+    }
+
+    private NumberDecoder decoder(int chunk)
+    {
+        return new NumberDecoder(data, bounds[chunk], bounds[chunk + 1], type);
+    }
+
+    private void countChunks()
+    {
+        if (counted)
+            return;
+        counted = true;
+        final long[] counts = new long[bounds.length - 1];
+        run(new ChunkTask()
+        {
+            @Override
+            void process(int chunk)
+            {
+                counts[chunk] = decoder(chunk).count();
+            }
+        });
+        for (int i = 0; i < counts.length; i++)
+            offsets[i + 1] = offsets[i] + counts[i];
+    }
+
+    private void run(final ChunkTask task)
+    {
+        ForkJoinPool.commonPool().invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                List<RecursiveAction> chunks = new ArrayList<RecursiveAction>();
+                for (int i = 0; i < bounds.length - 1; i++)
+                {
+                    final int chunk = i;
+                    chunks.add(new RecursiveAction()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected void compute()
+                        {
+                            task.process(chunk);
+                        }
+                    });
+                }
+                invokeAll(chunks);
+            }
+        });
+    }
+
+    private static abstract class ChunkTask
+    {
+        abstract void process(int chunk);
+    }
+}
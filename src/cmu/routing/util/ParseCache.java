@@ -0,0 +1,425 @@
+package cmu.routing.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ *
+ * Keeps the parsed values of every input file, keyed by the hash of the
+ * contents of the file. The input files are layered (a base file, the
+ * incremental file and the mechanism file), and a layer that did not change
+ * since it was last parsed is loaded from the cache instead of the input
+ * file. A changed layer is parsed again on its own, and its values replace
+ * the values of the same keys of the layers below as before.
+ *
+ * The cache is kept in a directory next to the input files. The array values
+ * are stored already decoded, as blocks of the smallest type that holds
+ * their numbers. The values are memory mapped from the cache, so they are
+ * read from the page cache without being copied to the heap first.
+ *
+ */
+public class ParseCache
+{
+    private static final String CACHE_DIRECTORY = ".parse_cache";
+    private static final String LAYER_SUFFIX = ".layer";
+    private static final String STAMP_SUFFIX = ".stamp";
+    private static final int MAGIC = 0x524D5043;
+    private static final int VERSION = 2;
+
+    /**
+     *
+     * Loads the values of an input file into the contents, from the cache if
+     * the same contents were parsed before
+     *
+     * @param inputFile
+     *            The input file containing the data
+     * @param keyValue
+     *            The contents the values are stored in
+     * @param keys
+     *            The keys to be loaded, or null for all keys
+     * @throws IOException
+     *             Thrown when any error while finding or reading the file
+     */
+    public static void load(String inputFile, DataContents keyValue,
+            Set<String> keys) throws IOException
+    {
+        File file = FileUtil.resolveInputFile(inputFile);
+        File directory = new File(file.getAbsoluteFile().getParentFile(),
+                CACHE_DIRECTORY);
+        String hash = getContentHash(file, directory);
+        File layerFile = new File(directory, hash + LAYER_SUFFIX);
+
+        if (layerFile.isFile())
+        {
+            try
+            {
+                readLayer(layerFile, keyValue, keys);
+                return;
+            } catch (IOException e)
+            {
+                System.out.println("Not able to read the parse cache "
+                        + layerFile);
+            }
+        }
+        parseLayer(inputFile, layerFile, keyValue, keys);
+    }
+
+    private static void parseLayer(String inputFile, File layerFile,
+            final DataContents keyValue, final Set<String> keys)
+            throws IOException
+    {
+        File tempFile = createTempFile(layerFile);
+        File scratchFile = tempFile == null ? null
+                : createTempFile(layerFile);
+        if (scratchFile == null)
+        {
+            /* Without a cache only the needed values are read */
+            FileUtil.readFile(inputFile, new DataValueHandler()
+            {
+                @Override
+                public void handleValue(String key, DataValueInput value)
+                        throws IOException
+                {
+                    if (keys == null || keys.contains(key))
+                        keyValue.put(key, value.readBytes());
+                }
+            });
+            if (tempFile != null)
+                tempFile.delete();
+            return;
+        }
+
+        boolean written = false;
+        boolean done = false;
+        RandomAccessFile layer = new RandomAccessFile(tempFile, "rw");
+        RandomAccessFile scratch = new RandomAccessFile(scratchFile, "rw");
+        try
+        {
+            final FileChannel layerChannel = layer.getChannel();
+            final FileChannel scratchChannel = scratch.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            write(layerChannel, header);
+
+            /*
+             * All values are kept, other models may need other keys. Every
+             * value is streamed through the scratch file, so the skipped
+             * values are never held in memory.
+             */
+            FileUtil.readFile(inputFile, new DataValueHandler()
+            {
+                @Override
+                public void handleValue(String key, DataValueInput value)
+                        throws IOException
+                {
+                    writeValue(layerChannel, scratchChannel, key, value);
+                }
+            });
+            layer.close();
+            written = true;
+            done = tempFile.renameTo(layerFile);
+        } finally
+        {
+            layer.close();
+            scratch.close();
+            scratchFile.delete();
+            if (!written)
+                tempFile.delete();
+        }
+
+        readLayer(done ? layerFile : tempFile, keyValue, keys);
+        if (!done)
+            tempFile.delete();
+    }
+
+    /*
+     * The value is copied to the scratch file first. An array value is then
+     * stored as a block of the smallest type that holds its numbers, decoded
+     * straight into the mapped layer, so loading it later needs no parsing.
+     * Any other value is stored as its text.
+     */
+    private static void writeValue(FileChannel layer, FileChannel scratch,
+            String key, DataValueInput value) throws IOException
+    {
+        OutputStream output = new BufferedOutputStream(
+                Channels.newOutputStream(scratch.position(0)), 1 << 16);
+        long length = value.copyTo(output);
+        output.flush();
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("The value of " + key
+                    + " is too large for the parse cache");
+        DataValue text = DataValue.text(scratch.map(
+                FileChannel.MapMode.READ_ONLY, 0, length));
+
+        ElementType type = findType(text);
+        long count = 0;
+        ParallelDecoder parallel = null;
+        if (type != null)
+        {
+            if (ParallelDecoder.isParallel(text))
+            {
+                parallel = new ParallelDecoder(text);
+                count = parallel.count();
+            } else
+                count = text.decoder().count();
+            if (count * type.getSize() > Integer.MAX_VALUE)
+                type = null;
+        }
+
+        byte[] name = key.getBytes(StandardCharsets.UTF_8);
+        long position = layer.size();
+        ByteBuffer header = ByteBuffer.allocate(9 + name.length);
+        header.putInt(name.length).put(name);
+        if (type != null)
+        {
+            int size = (int) (count * type.getSize());
+            header.put((byte) (type.ordinal() + 1)).putInt(size).flip();
+            write(layer, header);
+            ByteBuffer block = layer.map(FileChannel.MapMode.READ_WRITE,
+                    position + header.limit(), size);
+            try
+            {
+                if (parallel != null)
+                    parallel.decode(block, type);
+                else
+                    text.decoder().decode(block, type, 0, (int) count);
+                return;
+            } catch (NumberFormatException e)
+            {
+                /* Not an array of numbers after all, it is kept as text */
+                layer.truncate(position);
+                header.clear();
+                header.putInt(name.length).put(name);
+            }
+        }
+        header.put((byte) 0).putInt((int) length).flip();
+        write(layer, header);
+        ByteBuffer bytes = text.getBytes();
+        while (bytes.hasRemaining())
+            layer.write(bytes, layer.size());
+    }
+
+    private static ElementType findType(DataValue text)
+    {
+        if (text.size() == 0 || text.getBytes().get() != '[')
+            return null;
+        try
+        {
+            if (ParallelDecoder.isParallel(text))
+                return new ParallelDecoder(text).findType();
+            return text.decoder().findType();
+        } catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer)
+            throws IOException
+    {
+        while (buffer.hasRemaining())
+            channel.write(buffer, channel.size());
+    }
+
+    private static File createTempFile(File layerFile)
+    {
+        File directory = layerFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+            return null;
+        try
+        {
+            return File.createTempFile(layerFile.getName(), ".part",
+                    directory);
+        } catch (IOException e)
+        {
+            System.out.println("Not able to create the parse cache "
+                    + layerFile);
+            return null;
+        }
+    }
+
+    private static void readLayer(File layerFile, DataContents keyValue,
+            Set<String> keys) throws IOException
+    {
+        RandomAccessFile input = new RandomAccessFile(layerFile, "r");
+        try
+        {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            ByteBuffer header = read(channel, 0, 8);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Unknown parse cache " + layerFile);
+
+            long position = 8;
+            while (position < size)
+            {
+                int nameLength = read(channel, position, 4).getInt();
+                if (nameLength < 0 || nameLength > size - position - 9)
+                    throw new IOException("The parse cache is corrupted");
+                ByteBuffer name = read(channel, position + 4, nameLength);
+                String key = new String(name.array(), 0, nameLength,
+                        StandardCharsets.UTF_8);
+                position += 4 + nameLength;
+
+                ByteBuffer record = read(channel, position, 5);
+                int kind = record.get();
+                int valueLength = record.getInt();
+                position += 5;
+                if (kind < 0 || kind > ElementType.values().length
+                        || valueLength < 0 || valueLength > size - position)
+                    throw new IOException("The parse cache is corrupted");
+                if (keys == null || keys.contains(key))
+                {
+                    ByteBuffer bytes = channel.map(
+                            FileChannel.MapMode.READ_ONLY, position,
+                            valueLength);
+                    keyValue.put(key, kind == 0 ? DataValue.text(bytes)
+                            : DataValue.numbers(
+                                    ElementType.values()[kind - 1], bytes));
+                }
+                position += valueLength;
+            }
+        } finally
+        {
+            input.close();
+        }
+    }
+
+    /*
+     * The hash of a file is remembered together with its size and time of
+     * change, so an unchanged file is not read again to find its hash.
+     */
+    private static String getContentHash(File file, File directory)
+            throws IOException
+    {
+        File stampFile = new File(directory, file.getName() + STAMP_SUFFIX);
+        String expected = file.length() + " " + file.lastModified() + " ";
+        String stamp = readStamp(stampFile);
+        if (stamp != null && stamp.startsWith(expected))
+            return stamp.substring(expected.length());
+
+        String hash = hashFile(file);
+        if (stamp != null)
+        {
+            String previous = stamp.substring(stamp.lastIndexOf(' ') + 1);
+            if (!previous.equals(hash))
+                new File(directory, previous + LAYER_SUFFIX).delete();
+        }
+        writeStamp(stampFile, expected + hash);
+        return hash;
+    }
+
+    private static String hashFile(File file) throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+
+        InputStream input = new FileInputStream(file);
+        try
+        {
+            byte[] buffer = new byte[1 << 16];
+            int count;
+            while ((count = input.read(buffer)) > 0)
+                digest.update(buffer, 0, count);
+        } finally
+        {
+            input.close();
+        }
+
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest())
+            hash.append(String.format("%02x", b & 0xff));
+        return hash.toString();
+    }
+
+    private static String readStamp(File stampFile)
+    {
+        if (!stampFile.isFile())
+            return null;
+        try
+        {
+            InputStream input = new FileInputStream(stampFile);
+            try
+            {
+                byte[] bytes = new byte[(int) stampFile.length()];
+                int count = 0;
+                while (count < bytes.length)
+                {
+                    int read = input.read(bytes, count, bytes.length - count);
+                    if (read < 0)
+                        return null;
+                    count += read;
+                }
+                return new String(bytes, StandardCharsets.US_ASCII).trim();
+            } finally
+            {
+                input.close();
+            }
+        } catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private static void writeStamp(File stampFile, String stamp)
+    {
+        File directory = stampFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+            return;
+        File tempFile = null;
+        try
+        {
+            tempFile = File.createTempFile(stampFile.getName(), ".part",
+                    directory);
+            FileOutputStream output = new FileOutputStream(tempFile);
+            try
+            {
+                output.write(stamp.getBytes(StandardCharsets.US_ASCII));
+            } finally
+            {
+                output.close();
+            }
+            if (stampFile.exists())
+                stampFile.delete();
+            tempFile.renameTo(stampFile);
+        } catch (IOException e)
+        {
+            System.out.println("Not able to write the parse cache stamp "
+                    + stampFile);
+            if (tempFile != null)
+                tempFile.delete();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position,
+            int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of the parse cache");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
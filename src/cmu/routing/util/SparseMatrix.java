@@ -0,0 +1,442 @@
+package cmu.routing.util;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Holds a 2-dimensional array of which most values are zero. Only the
+ * nonzero values are stored, row by row in compressed sparse row form. A
+ * column oriented index of the same values is kept as well, so both the rows
+ * and the columns can be walked over their nonzero values only.
+ *
+ * The nonzero values are addressed by their entry, the position of the value
+ * in row order. A row is walked as
+ *
+ * <pre>
+ * for (int k = matrix.rowStart(i); k &lt; matrix.rowEnd(i); k++)
+ *     ... matrix.column(k), matrix.value(k) ...
+ * </pre>
+ *
+ * and a column as
+ *
+ * <pre>
+ * for (int k = matrix.columnStart(j); k &lt; matrix.columnEnd(j); k++)
+ *     ... matrix.row(k), matrix.value(matrix.entry(k)) ...
+ * </pre>
+ *
+ */
+public class SparseMatrix
+{
+    private final int rows;
+    private final int cols;
+
+    /* Compressed sparse rows */
+    private final int[] rowStarts;
+    private final int[] columns;
+    private final double[] values;
+
+    /* Compressed sparse columns, pointing back to the entries of the rows */
+    private final int[] columnStarts;
+    private final int[] columnRows;
+    private final int[] columnEntries;
+
+    /**
+     *
+     * @param rows
+     *            Number of rows
+     * @param cols
+     *            Number of columns
+     * @param rowStarts
+     *            The first entry of every row, followed by the number of
+     *            entries
+     * @param columns
+     *            The column of every entry, ascending within a row
+     * @param values
+     *            The value of every entry
+     */
+    public SparseMatrix(int rows, int cols, int[] rowStarts, int[] columns,
+            double[] values)
+    {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStarts = rowStarts;
+        this.columns = columns;
+        this.values = values;
+
+        int nonZeros = rowStarts[rows];
+        columnStarts = new int[cols + 1];
+        for (int k = 0; k < nonZeros; k++)
+            columnStarts[columns[k] + 1]++;
+        for (int j = 0; j < cols; j++)
+            columnStarts[j + 1] += columnStarts[j];
+
+        columnRows = new int[nonZeros];
+        columnEntries = new int[nonZeros];
+        int[] next = Arrays.copyOf(columnStarts, cols);
+        for (int i = 0; i < rows; i++)
+        {
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++)
+            {
+                int position = next[columns[k]]++;
+                columnRows[position] = i;
+                columnEntries[position] = k;
+            }
+        }
+    }
+
+    private SparseMatrix(SparseMatrix pattern, double[] values)
+    {
+        this.rows = pattern.rows;
+        this.cols = pattern.cols;
+        this.rowStarts = pattern.rowStarts;
+        this.columns = pattern.columns;
+        this.values = values;
+        this.columnStarts = pattern.columnStarts;
+        this.columnRows = pattern.columnRows;
+        this.columnEntries = pattern.columnEntries;
+    }
+
+    /**
+     *
+     * Creates a matrix with the same nonzero positions as this one but other
+     * values. Only the values are stored for the new matrix, the rows and
+     * columns are shared with this one.
+     *
+     * @param values
+     *            The value of every entry of this matrix
+     * @return The matrix holding the values
+     */
+    public SparseMatrix withValues(double[] values)
+    {
+        if (values.length != getNonZeros())
+            throw new IllegalArgumentException("Expected " + getNonZeros()
+                    + " values but got " + values.length);
+        return new SparseMatrix(this, values);
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getCols()
+    {
+        return cols;
+    }
+
+    public int getNonZeros()
+    {
+        return rowStarts[rows];
+    }
+
+    /**
+     *
+     * @return The number of bytes taken by the values and both indexes
+     */
+    public long getBytes()
+    {
+        long nonZeros = getNonZeros();
+        return 4L * (rowStarts.length + columnStarts.length) + 8 * nonZeros
+                + 3 * 4 * nonZeros;
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @return The first entry of the row
+     */
+    public int rowStart(int row)
+    {
+        return rowStarts[row];
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @return The entry after the last entry of the row
+     */
+    public int rowEnd(int row)
+    {
+        return rowStarts[row + 1];
+    }
+
+    /**
+     *
+     * @param entry
+     *            The entry
+     * @return The column of the entry
+     */
+    public int column(int entry)
+    {
+        return columns[entry];
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @return The columns of the nonzero values of the row, ascending
+     */
+    public int[] getColumns(int row)
+    {
+        return Arrays.copyOfRange(columns, rowStarts[row], rowStarts[row + 1]);
+    }
+
+    /**
+     *
+     * @param entry
+     *            The entry
+     * @return The value of the entry
+     */
+    public double value(int entry)
+    {
+        return values[entry];
+    }
+
+    /**
+     *
+     * @param col
+     *            The column
+     * @return The first position of the column
+     */
+    public int columnStart(int col)
+    {
+        return columnStarts[col];
+    }
+
+    /**
+     *
+     * @param col
+     *            The column
+     * @return The position after the last position of the column
+     */
+    public int columnEnd(int col)
+    {
+        return columnStarts[col + 1];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position in column order
+     * @return The row of the value at the position
+     */
+    public int row(int position)
+    {
+        return columnRows[position];
+    }
+
+    /**
+     *
+     * @param position
+     *            The position in column order
+     * @return The entry of the value at the position
+     */
+    public int entry(int position)
+    {
+        return columnEntries[position];
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @param col
+     *            The column
+     * @return The first entry of the row at or after the column
+     */
+    public int entryAt(int row, int col)
+    {
+        if (row >= rows)
+            return getNonZeros();
+        int entry = Arrays.binarySearch(columns, rowStarts[row],
+                rowStarts[row + 1], col);
+        return entry < 0 ? -entry - 1 : entry;
+    }
+
+    /**
+     *
+     * @param row
+     *            The row
+     * @param col
+     *            The column
+     * @return The value at the row and column, 0 if it is not stored
+     */
+    public double get(int row, int col)
+    {
+        int entry = Arrays.binarySearch(columns, rowStarts[row],
+                rowStarts[row + 1], col);
+        return entry < 0 ? 0 : values[entry];
+    }
+
+    int[] getRowStarts()
+    {
+        return rowStarts;
+    }
+
+    int[] getColumns()
+    {
+        return columns;
+    }
+
+    double[] getValues()
+    {
+        return values;
+    }
+
+    /**
+     *
+     * Builds a matrix with the columns of several matrices moved to new
+     * positions. The matrices are taken in order, so a value that is moved to
+     * the same row and column as an earlier one replaces it.
+     *
+     * @param cols
+     *            Number of columns of the new matrix
+     * @param parts
+     *            The matrices, all with the same number of rows
+     * @param columnMaps
+     *            For every matrix the new column of each of its columns, or
+     *            -1 to drop the column
+     * @return The new matrix
+     */
+    public static SparseMatrix mergeColumns(int cols, SparseMatrix[] parts,
+            int[][] columnMaps)
+    {
+        int rows = parts[0].rows;
+        Builder builder = new Builder(rows, cols);
+        int[] rowOf = new int[cols];
+        int[] slotOf = new int[cols];
+        Arrays.fill(rowOf, -1);
+        int[] rowColumns = new int[16];
+        double[] rowValues = new double[16];
+
+        for (int i = 0; i < rows; i++)
+        {
+            int count = 0;
+            for (int p = 0; p < parts.length; p++)
+            {
+                SparseMatrix part = parts[p];
+                for (int k = part.rowStarts[i]; k < part.rowStarts[i + 1]; k++)
+                {
+                    int col = columnMaps[p][part.columns[k]];
+                    if (col < 0)
+                        continue;
+                    if (rowOf[col] == i)
+                    {
+                        rowValues[slotOf[col]] = part.values[k];
+                        continue;
+                    }
+                    if (count == rowColumns.length)
+                    {
+                        rowColumns = Arrays.copyOf(rowColumns, count * 2);
+                        rowValues = Arrays.copyOf(rowValues, count * 2);
+                    }
+                    rowOf[col] = i;
+                    slotOf[col] = count;
+                    rowColumns[count] = col;
+                    rowValues[count] = part.values[k];
+                    count++;
+                }
+            }
+
+            Arrays.sort(rowColumns, 0, count);
+            for (int k = 0; k < count; k++)
+                builder.add(i, rowColumns[k], rowValues[slotOf[rowColumns[k]]]);
+        }
+        return builder.build();
+    }
+
+    /**
+     *
+     * Collects the nonzero values of a matrix in row order
+     *
+     */
+    public static class Builder
+    {
+        private final int rows;
+        private final int cols;
+        private final int[] rowCounts;
+        private int[] columns = new int[1024];
+        private double[] values = new double[1024];
+        private int size = 0;
+
+        /**
+         *
+         * @param rows
+         *            Number of rows
+         * @param cols
+         *            Number of columns
+         */
+        public Builder(int rows, int cols)
+        {
+            this.rows = rows;
+            this.cols = cols;
+            this.rowCounts = new int[rows];
+        }
+
+        /**
+         *
+         * Adds a value. The values have to be added in row order, and in
+         * ascending column order within a row. Zero values are not stored.
+         *
+         * @param row
+         *            The row of the value
+         * @param col
+         *            The column of the value
+         * @param value
+         *            The value
+         */
+        public void add(int row, int col, double value)
+        {
+            if (value == 0)
+                return;
+            if (size == columns.length)
+            {
+                columns = Arrays.copyOf(columns, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            columns[size] = col;
+            values[size] = value;
+            size++;
+            rowCounts[row]++;
+        }
+
+        /**
+         *
+         * Adds all values of another builder, which all have to come after
+         * the values of this builder
+         *
+         * @param other
+         *            The builder holding the values
+         */
+        public void append(Builder other)
+        {
+            if (size + other.size > columns.length)
+            {
+                int capacity = Math.max(size + other.size, columns.length * 2);
+                columns = Arrays.copyOf(columns, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(other.columns, 0, columns, size, other.size);
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            for (int i = 0; i < rows; i++)
+                rowCounts[i] += other.rowCounts[i];
+        }
+
+        /**
+         *
+         * @return The matrix holding the values added so far
+         */
+        public SparseMatrix build()
+        {
+            int[] rowStarts = new int[rows + 1];
+            for (int i = 0; i < rows; i++)
+                rowStarts[i + 1] = rowStarts[i] + rowCounts[i];
+            return new SparseMatrix(rows, cols, rowStarts, Arrays.copyOf(
+                    columns, size), Arrays.copyOf(values, size));
+        }
+    }
+}
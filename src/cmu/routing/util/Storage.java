@@ -0,0 +1,24 @@
+package cmu.routing.util;
+
+/**
+ *
+ * Where the values of a {@link NumberMatrix} are kept. The matrices indexed
+ * by string are the largest arrays of the models, and keeping them outside
+ * the Java heap leaves a smaller heap for the garbage collector to scan and
+ * more memory for the native solver.
+ *
+ */
+public enum Storage
+{
+    /** Java arrays on the heap */
+    HEAP,
+
+    /** Direct buffers outside the heap */
+    DIRECT,
+
+    /**
+     * Buffers mapped from a temporary file, so the operating system may page
+     * the values out under memory pressure
+     */
+    MAPPED
+}
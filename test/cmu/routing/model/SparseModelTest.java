@@ -0,0 +1,100 @@
+package cmu.routing.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ *
+ * Tests that the rows built in chunks by {@link SparseModel} are the rows
+ * built one index after another
+ *
+ */
+public class SparseModelTest
+{
+    private static final int COLUMNS = 50;
+
+    /*
+     * Adds no row, one row or two rows for an index, some of them with terms
+     * of the same column
+     */
+    private static final SparseModel.RowGenerator GENERATOR = new SparseModel.RowGenerator()
+    {
+        @Override
+        public void addRows(int index, SparseRows rows)
+        {
+            for (int r = 0; r < index % 3; r++)
+            {
+                for (int k = 0; k <= index % 7; k++)
+                    rows.add(k - 2, (index * 13 + k * 5 + r) % COLUMNS);
+                rows.add(1, index % COLUMNS);
+                rows.addRange(-index, index + r);
+            }
+        }
+    };
+
+    @Test
+    public void addsTheRowsOfTheChunksInTheOrderOfTheIndexes()
+    {
+        for (int count : new int[] { 0, 1, 2, 7, 1000 })
+        {
+            SparseModel model = createModel();
+            model.addRows(count, GENERATOR);
+
+            SparseModel serial = createModel();
+            for (int i = 0; i < count; i++)
+                GENERATOR.addRows(i, serial);
+
+            assertSameRows(serial, model);
+        }
+    }
+
+    @Test
+    public void addsTheRowsAfterTheRowsAddedBefore()
+    {
+        SparseModel model = createModel();
+        SparseModel serial = createModel();
+        for (SparseModel rows : new SparseModel[] { model, serial })
+        {
+            rows.add(3, 4);
+            rows.add(-1, 40);
+            rows.addRange(0, 1);
+        }
+
+        model.addRows(500, GENERATOR);
+        for (int i = 0; i < 500; i++)
+            GENERATOR.addRows(i, serial);
+        model.addRows(300, GENERATOR);
+        for (int i = 0; i < 300; i++)
+            GENERATOR.addRows(i, serial);
+
+        assertSameRows(serial, model);
+    }
+
+    private static SparseModel createModel()
+    {
+        SparseModel model = new SparseModel();
+        model.addColumns(COLUMNS, 0, 1, VariableType.FLOAT);
+        return model;
+    }
+
+    private static void assertSameRows(SparseRows expected, SparseRows actual)
+    {
+        assertEquals(expected.getRows(), actual.getRows());
+        assertEquals(expected.getNonZeros(), actual.getNonZeros());
+        for (int i = 0; i < expected.getRows(); i++)
+        {
+            assertEquals(expected.rowStart(i), actual.rowStart(i));
+            assertEquals(expected.rowEnd(i), actual.rowEnd(i));
+            assertEquals(expected.getRowLowerBound(i),
+                    actual.getRowLowerBound(i), 0);
+            assertEquals(expected.getRowUpperBound(i),
+                    actual.getRowUpperBound(i), 0);
+        }
+        for (int k = 0; k < expected.getNonZeros(); k++)
+        {
+            assertEquals(expected.column(k), actual.column(k));
+            assertEquals(expected.value(k), actual.value(k), 0);
+        }
+    }
+}
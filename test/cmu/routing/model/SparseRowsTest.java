@@ -0,0 +1,118 @@
+package cmu.routing.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import cmu.routing.util.SparseMatrix;
+
+/**
+ *
+ * Tests the terms of the rows added to {@link SparseRows}
+ *
+ */
+public class SparseRowsTest
+{
+    @Test
+    public void sumsTheTermsOfTheSameColumn()
+    {
+        SparseRows rows = createRows(4);
+        rows.add(1, 2);
+        rows.add(3, 0);
+        rows.add(2.5, 2);
+        assertEquals(0, rows.addRange(1, 1));
+
+        assertEquals(1, rows.getRows());
+        assertEquals(2, rows.getNonZeros());
+        assertTerm(rows, 0, 2, 3.5);
+        assertTerm(rows, 1, 0, 3);
+        assertEquals(1, rows.getRowLowerBound(0), 0);
+        assertEquals(1, rows.getRowUpperBound(0), 0);
+    }
+
+    @Test
+    public void dropsTheTermsThatCancelOut()
+    {
+        SparseRows rows = createRows(4);
+        rows.add(1, 1);
+        rows.add(2, 3);
+        rows.add(-1, 1);
+        rows.addRange(-Double.MAX_VALUE, 0);
+
+        assertEquals(1, rows.getNonZeros());
+        assertTerm(rows, 0, 3, 2);
+
+        /* The cancelled column can be used again in the next row */
+        rows.add(4, 1);
+        assertEquals(1, rows.addRange(0, Double.MAX_VALUE));
+        assertEquals(1, rows.rowStart(1));
+        assertEquals(2, rows.rowEnd(1));
+        assertTerm(rows, 1, 1, 4);
+    }
+
+    @Test
+    public void ignoresTheZeroCoefficients()
+    {
+        SparseRows rows = createRows(4);
+        rows.add(0, 0);
+        rows.add(0, 1);
+        rows.addRange(0, 0);
+
+        assertEquals(1, rows.getRows());
+        assertEquals(0, rows.getNonZeros());
+        assertEquals(0, rows.rowStart(0));
+        assertEquals(0, rows.rowEnd(0));
+    }
+
+    @Test
+    public void addsTheRowOfAMatrixFromTheFirstColumn()
+    {
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(2, 3);
+        builder.add(0, 0, 1);
+        builder.add(0, 2, 2);
+        builder.add(1, 1, 5);
+        SparseMatrix matrix = builder.build();
+
+        SparseRows rows = createRows(6);
+        rows.add(1, 5);
+        rows.addRow(matrix, 0, -2, 3);
+        rows.addRange(0, 0);
+
+        assertEquals(2, rows.getNonZeros());
+        assertTerm(rows, 0, 5, -3);
+        assertTerm(rows, 1, 3, -2);
+    }
+
+    @Test
+    public void startsFromTheFirstRowAfterRelease()
+    {
+        SparseRows rows = createRows(4);
+        for (int i = 0; i < 100; i++)
+        {
+            rows.add(i + 1, i % 4);
+            rows.addRange(0, i);
+        }
+        rows.add(1, 2);
+        rows.release();
+
+        rows.add(7, 2);
+        assertEquals(0, rows.addRange(0, 1));
+        assertEquals(1, rows.getRows());
+        assertEquals(1, rows.getNonZeros());
+        assertTerm(rows, 0, 2, 7);
+    }
+
+    private static SparseRows createRows(int columns)
+    {
+        SparseRows rows = new SparseRows();
+        rows.ensureColumns(columns);
+        return rows;
+    }
+
+    private static void assertTerm(SparseRows rows, int position, int column,
+            double value)
+    {
+        assertEquals(column, rows.column(position));
+        assertEquals(value, rows.value(position), 0);
+    }
+}
@@ -0,0 +1,214 @@
+package cmu.routing.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cmu.routing.util.ElementType;
+import cmu.routing.util.NumberMatrix;
+import cmu.routing.util.SparseMatrix;
+
+/**
+ *
+ * Tests the strings kept by {@link StringReduction}
+ *
+ */
+public class StringReductionTest
+{
+    @Test
+    public void dropsTheDominatedStringsOfAGroup()
+    {
+        /*
+         * 0 and 1 are the same string, 1 delaying less. 2 and 3 are the same
+         * string, 2 counting less and delaying more. 4 and 5 cover the same
+         * flight legs with other maintenance events. 6 and 7 are duplicates.
+         * 8 and 9 cover no flight leg and lower the delay. 10 to 12 cover no
+         * flight leg, 12 delaying more than 10 with the same count.
+         */
+        int[][] legs = { { 0, 1 }, { 0, 1 }, { 2 }, { 2 }, { 3 }, { 3 },
+                { 1, 4 }, { 1, 4 }, {}, {}, {}, {}, {} };
+        double[] delay = { 4, 3, 5, 2, 1, 1, 6, 6, -1, -1, 3, 9, 5 };
+        double[] count = { 1, 1, 0, 1, 1, 1, 2, 2, 1, 1, 1, 2, 1 };
+        int[][] maintIn = new int[2][legs.length];
+        maintIn[1][5] = 1;
+        StringReduction reduction = createReduction(5, legs, delay, count,
+                maintIn, new int[2][legs.length]);
+
+        assertEquals(10, reduction.getStrings());
+        assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 8, 9, 10, 11 },
+                reduction.getOriginalStrings());
+    }
+
+    @Test
+    public void keepsTheColumnsOfTheKeptStrings()
+    {
+        int[][] legs = { { 0 }, { 1, 2 }, { 0 }, { 2 } };
+        double[] delay = { 3, 7, 1, 2 };
+        double[] count = { 1, 1, 1, 0 };
+        int[][] maintIn = { { 0, 1, 0, 1 } };
+        int[][] maintOut = { { 0, 0, 0, 1 } };
+        StringReduction reduction = createReduction(3, legs, delay, count,
+                maintIn, maintOut);
+
+        int[] kept = { 1, 2, 3 };
+        assertArrayEquals(kept, reduction.getOriginalStrings());
+        SparseMatrix cover = reduction.getCover();
+        assertEquals(3, cover.getRows());
+        assertEquals(kept.length, cover.getCols());
+        for (int j = 0; j < kept.length; j++)
+        {
+            for (int i = 0; i < 3; i++)
+                assertEquals(contains(legs[kept[j]], i) ? 1 : 0,
+                        cover.get(i, j), 0);
+            assertEquals(delay[kept[j]], reduction.getPropDelay().get(0, j), 0);
+            assertEquals(count[kept[j]],
+                    reduction.getCountStrings().get(0, j), 0);
+            assertEquals(maintIn[0][kept[j]],
+                    reduction.getFlightMaintStringsIn().get(0, j), 0);
+            assertEquals(maintOut[0][kept[j]],
+                    reduction.getFlightMaintStringsOut().get(0, j), 0);
+        }
+
+        assertArrayEquals(new double[] { 0, 4, 5, 6 },
+                reduction.toOriginal(new double[] { 4, 5, 6 }), 0);
+    }
+
+    @Test
+    public void buildsTheIncidenceWhenAskedFor()
+    {
+        int[][] legs = { { 0, 2 }, { 0, 2 }, { 1 } };
+        StringReduction reduction = createReduction(3, legs, new double[] {
+                2, 1, 1 }, new double[] { 1, 1, 1 }, new int[1][3],
+                new int[1][3]);
+
+        StringIncidence incidence = reduction.getStringIncidence();
+        assertSame(incidence, reduction.getStringIncidence());
+        assertEquals(2, incidence.getStrings());
+        assertEquals(2, incidence.flightEnd(0) - incidence.flightStart(0));
+        assertEquals(1, incidence.flightEnd(1) - incidence.flightStart(1));
+        assertEquals(1, incidence.flight(incidence.flightStart(1)));
+    }
+
+    @Test
+    public void keepsNoDominatedStringAndReplacesEveryDroppedString()
+    {
+        Random random = new Random(13);
+        for (int run = 0; run < 200; run++)
+        {
+            int strings = 1 + random.nextInt(40);
+            int flightLegs = 1 + random.nextInt(4);
+            int[][] legs = new int[strings][];
+            double[] delay = new double[strings];
+            double[] count = new double[strings];
+            int[][] maintIn = new int[2][strings];
+            int[][] maintOut = new int[2][strings];
+            for (int j = 0; j < strings; j++)
+            {
+                /* Few distinct columns, so most strings share their group */
+                int pattern = random.nextInt(1 << flightLegs);
+                legs[j] = new int[Integer.bitCount(pattern)];
+                for (int i = 0, k = 0; i < flightLegs; i++)
+                    if ((pattern & 1 << i) != 0)
+                        legs[j][k++] = i;
+                delay[j] = random.nextInt(5) - 1;
+                count[j] = random.nextInt(3);
+                maintIn[random.nextInt(2)][j] = random.nextInt(2);
+                maintOut[random.nextInt(2)][j] = random.nextInt(2);
+            }
+            StringReduction reduction = createReduction(flightLegs, legs,
+                    delay, count, maintIn, maintOut);
+
+            boolean[] kept = new boolean[strings];
+            for (int j : reduction.getOriginalStrings())
+                kept[j] = true;
+            for (int j = 0; j < strings; j++)
+            {
+                /* Strings covering no flight leg and lowering the delay stay */
+                if (isUngrouped(legs, delay, j))
+                {
+                    assertTrue("dropped string " + j, kept[j]);
+                    continue;
+                }
+                boolean replaced = false;
+                for (int k = 0; k < strings; k++)
+                {
+                    if (k != j && kept[k] && !isUngrouped(legs, delay, k)
+                            && sameColumn(legs, maintIn, maintOut, j, k)
+                            && count[k] <= count[j] && delay[k] <= delay[j]
+                            && (legs[j].length > 0 || count[k] == count[j]))
+                        replaced = true;
+                }
+                if (kept[j])
+                    assertTrue("kept dominated string " + j, !replaced);
+                else
+                    assertTrue("dropped string " + j + " not replaced",
+                            replaced);
+            }
+        }
+    }
+
+    private static StringReduction createReduction(int flightLegs,
+            int[][] legs, double[] delay, double[] count, int[][] maintIn,
+            int[][] maintOut)
+    {
+        int strings = legs.length;
+        SparseMatrix.Builder cover = new SparseMatrix.Builder(flightLegs,
+                strings);
+        for (int i = 0; i < flightLegs; i++)
+            for (int j = 0; j < strings; j++)
+                cover.add(i, j, contains(legs[j], i) ? 1 : 0);
+        return new StringReduction(cover.build(), createRow(delay),
+                createRow(count), createMatrix(maintIn),
+                createMatrix(maintOut));
+    }
+
+    private static NumberMatrix createRow(double[] values)
+    {
+        NumberMatrix matrix = NumberMatrix.create(ElementType.DOUBLE, 1,
+                values.length);
+        for (int j = 0; j < values.length; j++)
+            matrix.set(0, j, values[j]);
+        return matrix;
+    }
+
+    private static NumberMatrix createMatrix(int[][] values)
+    {
+        NumberMatrix matrix = NumberMatrix.create(ElementType.BYTE,
+                values.length, values[0].length);
+        for (int i = 0; i < values.length; i++)
+            for (int j = 0; j < values[i].length; j++)
+                matrix.set(i, j, values[i][j]);
+        return matrix;
+    }
+
+    private static boolean sameColumn(int[][] legs, int[][] maintIn,
+            int[][] maintOut, int j, int k)
+    {
+        if (!Arrays.equals(legs[j], legs[k]))
+            return false;
+        for (int i = 0; i < maintIn.length; i++)
+            if (maintIn[i][j] != maintIn[i][k]
+                    || maintOut[i][j] != maintOut[i][k])
+                return false;
+        return true;
+    }
+
+    private static boolean isUngrouped(int[][] legs, double[] delay, int j)
+    {
+        return legs[j].length == 0 && delay[j] < 0;
+    }
+
+    private static boolean contains(int[] values, int value)
+    {
+        for (int v : values)
+            if (v == value)
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,227 @@
+package cmu.routing.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Tests the numbers decoded by {@link NumberDecoder} and the sequential paths
+ * of {@link ArrayUtil} against <code>Double.parseDouble</code>
+ *
+ */
+public class NumberDecoderTest
+{
+    private static final String[] TOKENS = { "0", "-0", "1", "-1", "+7",
+            "127", "-128", "32767", "-32768", "3.25", "-0.5", "0.1",
+            "0.30000000000000004", "1e-3", "-2.5E+10", "6.02214076e23",
+            "123456789012345678", "9007199254740993", "1.7976931348623157e308",
+            "4.9e-324", "2.2250738585072014E-308", "1e400", "-1e-400",
+            "007", "12.", "100000000000000000000000" };
+
+    @Test
+    public void decodesEveryTokenAsParseDouble()
+    {
+        List<String> tokens = createTokens();
+        NumberDecoder decoder = decoder(join(tokens, ", "));
+        for (String token : tokens)
+        {
+            assertTrue(token, decoder.hasNext());
+            assertSameDouble(token, Double.parseDouble(token),
+                    decoder.nextDouble());
+        }
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void acceptsEverySeparator()
+    {
+        NumberDecoder decoder = decoder("[[1,2]\n,[ 3 ,\t4]]\r\n");
+        double[] values = new double[6];
+        assertEquals(4, decoder.decode(values, 1, 5));
+        assertArrayEquals(new double[] { 0, 1, 2, 3, 4, 0 }, values, 0);
+    }
+
+    @Test
+    public void countsAndSkipsWithoutDecoding()
+    {
+        List<String> tokens = createTokens();
+        String text = "[" + join(tokens, ",") + "]";
+        assertEquals(tokens.size(), decoder(text).count());
+
+        NumberDecoder decoder = decoder(text);
+        for (int i = 0; i < tokens.size(); i += 2)
+        {
+            decoder.skip();
+            if (i + 1 < tokens.size())
+                assertSameDouble(tokens.get(i + 1),
+                        Double.parseDouble(tokens.get(i + 1)),
+                        decoder.nextDouble());
+        }
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void populatesTheArrayAsTheStringPath()
+    {
+        List<String> tokens = createTokens();
+        String text = "[" + join(tokens, ", ") + "]";
+        int cols = 7;
+        /* One more row than the tokens fill, so the last ones are missing */
+        int rows = tokens.size() / cols + 1;
+
+        double[][] expected = ArrayUtil.initArray(rows, cols);
+        ArrayUtil.populateArray(expected, text);
+        double[][] actual = ArrayUtil.initArray(rows, cols);
+        ArrayUtil.populateArray(actual, text(text));
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                assertSameDouble(i + "," + j, expected[i][j], actual[i][j]);
+    }
+
+    @Test
+    public void readsTheMatricesAsTheDenseArray()
+    {
+        List<String> tokens = createTokens();
+        String text = join(tokens, " ");
+        int cols = 9;
+        int rows = tokens.size() / cols + 1;
+        double[][] expected = ArrayUtil.initArray(rows, cols);
+        ArrayUtil.populateArray(expected, text);
+
+        SparseMatrix matrix = ArrayUtil.readMatrix(rows, cols, text(text));
+        NumberMatrix dense = NumberMatrix.create(ElementType.DOUBLE, rows,
+                cols);
+        ArrayUtil.populateArray(dense, text(text));
+        for (int i = 0; i < rows; i++)
+        {
+            for (int j = 0; j < cols; j++)
+            {
+                /* The sparse matrix does not store -0 */
+                assertEquals(i + "," + j, expected[i][j], matrix.get(i, j), 0);
+                assertSameDouble(i + "," + j, expected[i][j], dense.get(i, j));
+            }
+        }
+
+        SparseMatrix values = ArrayUtil.readMatrixValues(matrix, text(text));
+        for (int k = 0; k < matrix.getNonZeros(); k++)
+            assertSameDouble("entry " + k, matrix.value(k), values.value(k));
+    }
+
+    @Test
+    public void keepsTheNumbersOfTheSmallestType()
+    {
+        assertEquals(ElementType.BYTE, decoder("[1, -128, 127, 0]").findType());
+        assertEquals(ElementType.SHORT, decoder("[1, 128, -32768]").findType());
+        assertEquals(ElementType.DOUBLE, decoder("[1, 32768]").findType());
+        assertEquals(ElementType.DOUBLE, decoder("[1, 0.5]").findType());
+
+        Random random = new Random(11);
+        for (ElementType type : ElementType.values())
+        {
+            int[] numbers = new int[1000];
+            StringBuilder text = new StringBuilder("[");
+            for (int i = 0; i < numbers.length; i++)
+            {
+                numbers[i] = type == ElementType.BYTE ? random.nextInt(256) - 128
+                        : type == ElementType.SHORT ? random.nextInt(65536) - 32768
+                                : random.nextInt();
+                text.append(numbers[i]).append(i + 1 < numbers.length ? ", " : "]");
+            }
+            /* The extreme values of the type make it the smallest one */
+            numbers[0] = type == ElementType.BYTE ? Byte.MIN_VALUE
+                    : type == ElementType.SHORT ? Short.MIN_VALUE
+                            : Integer.MIN_VALUE;
+            text.replace(1, text.indexOf(","), String.valueOf(numbers[0]));
+            assertEquals(type, decoder(text.toString()).findType());
+
+            ByteBuffer block = ByteBuffer.allocate(numbers.length
+                    * type.getSize());
+            assertEquals(numbers.length, decoder(text.toString()).decode(block,
+                    type, 0, numbers.length));
+            DataValue value = DataValue.numbers(type, block);
+            assertEquals(numbers.length, value.decoder().count());
+            assertArrayEquals(numbers, ArrayUtil.readArray(value));
+
+            int[] padded = new int[numbers.length + 2];
+            ArrayUtil.populateArray(padded, value);
+            assertEquals(-1, padded[numbers.length]);
+            assertEquals(-1, padded[numbers.length + 1]);
+        }
+    }
+
+    /* The fixed tokens, then random numbers in the forms of the input files */
+    private static List<String> createTokens()
+    {
+        List<String> tokens = new ArrayList<String>();
+        for (String token : TOKENS)
+            tokens.add(token);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++)
+        {
+            switch (i % 4)
+            {
+            case 0:
+                tokens.add(Double.toString(random.nextDouble()
+                        * Math.pow(10, random.nextInt(40) - 20)));
+                break;
+            case 1:
+                tokens.add(Integer.toString(random.nextInt()));
+                break;
+            case 2:
+                tokens.add(Long.toString(random.nextLong()));
+                break;
+            default:
+                String digits = Long.toString(Math.abs(random.nextLong()));
+                int point = random.nextInt(digits.length());
+                tokens.add((random.nextBoolean() ? "-" : "")
+                        + digits.substring(0, point + 1) + "."
+                        + digits.substring(point + 1) + "e"
+                        + (random.nextInt(60) - 30));
+            }
+        }
+        return tokens;
+    }
+
+    private static String join(List<String> tokens, String separator)
+    {
+        StringBuilder text = new StringBuilder();
+        for (String token : tokens)
+        {
+            if (text.length() > 0)
+                text.append(separator);
+            text.append(token);
+        }
+        return text.toString();
+    }
+
+    private static DataValue text(String text)
+    {
+        return DataValue.text(ByteBuffer.wrap(text
+                .getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static NumberDecoder decoder(String text)
+    {
+        return text(text).decoder();
+    }
+
+    /* The bits are compared, so -0 is not taken for 0 */
+    static void assertSameDouble(String message, double expected,
+            double actual)
+    {
+        assertEquals(message, Double.doubleToLongBits(expected),
+                Double.doubleToLongBits(actual));
+    }
+}
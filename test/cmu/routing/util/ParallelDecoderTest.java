@@ -0,0 +1,153 @@
+package cmu.routing.util;
+
+import static cmu.routing.util.NumberDecoderTest.assertSameDouble;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Tests the values decoded in chunks by {@link ParallelDecoder} against the
+ * values decoded one after another by {@link NumberDecoder}
+ *
+ */
+public class ParallelDecoderTest
+{
+    private static final int COLS = 1000;
+
+    @Test
+    public void populatesTheArraysAsTheSequentialDecoder()
+    {
+        DataValue value = createValue(new Random(3), false);
+        long count = value.decoder().count();
+        assertEquals(count, new ParallelDecoder(value).count());
+
+        /* One more row than the value fills, so the last ones are missing */
+        int rows = (int) (count / COLS) + 1;
+        double[][] expected = ArrayUtil.initArray(rows, COLS);
+        NumberDecoder decoder = value.decoder();
+        for (double[] row : expected)
+        {
+            int decoded = decoder.decode(row, 0, COLS);
+            for (int j = decoded; j < COLS; j++)
+                row[j] = -1;
+        }
+        double[][] actual = ArrayUtil.initArray(rows, COLS);
+        new ParallelDecoder(value).populateArray(actual);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < COLS; j++)
+                assertSameDouble(i + "," + j, expected[i][j], actual[i][j]);
+
+        int[] expectedInts = new int[(int) count + 5];
+        int decoded = value.decoder().decode(expectedInts, 0,
+                expectedInts.length);
+        for (int j = decoded; j < expectedInts.length; j++)
+            expectedInts[j] = -1;
+        int[] actualInts = new int[expectedInts.length];
+        new ParallelDecoder(value).populateArray(actualInts);
+        assertArrayEquals(expectedInts, actualInts);
+    }
+
+    @Test
+    public void readsTheMatricesAsTheSequentialDecoder()
+    {
+        DataValue value = createValue(new Random(5), false);
+        int rows = (int) (value.decoder().count() / COLS) + 1;
+        double[][] dense = ArrayUtil.initArray(rows, COLS);
+        new ParallelDecoder(value).populateArray(dense);
+
+        SparseMatrix matrix = new ParallelDecoder(value).readMatrix(rows, COLS);
+        assertTrue(matrix.getNonZeros() < rows * COLS);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < COLS; j++)
+                assertEquals(i + "," + j, dense[i][j], matrix.get(i, j), 0);
+
+        /* Only every third column of the pattern is read */
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(rows, COLS);
+        for (int i = 0; i < rows; i++)
+            for (int j = i % 3; j < COLS; j += 3)
+                builder.add(i, j, 1);
+        SparseMatrix pattern = builder.build();
+        SparseMatrix values = new ParallelDecoder(value)
+                .readMatrixValues(pattern);
+        for (int i = 0; i < rows; i++)
+            for (int k = pattern.rowStart(i); k < pattern.rowEnd(i); k++)
+                assertSameDouble(i + "," + pattern.column(k),
+                        dense[i][pattern.column(k)], values.value(k));
+
+        /* The columns are stored in reverse order, and every fifth is skipped */
+        int[] columnMap = new int[COLS];
+        for (int j = 0; j < COLS; j++)
+            columnMap[j] = j % 5 == 0 ? -1 : COLS - 1 - j;
+        NumberMatrix mapped = NumberMatrix.create(ElementType.DOUBLE, rows,
+                COLS);
+        new ParallelDecoder(value).populateArray(mapped, columnMap);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < COLS; j++)
+                if (columnMap[j] >= 0)
+                    assertSameDouble(i + "," + j, dense[i][j],
+                            mapped.get(i, columnMap[j]));
+    }
+
+    @Test
+    public void decodesTheBlocksOfTheSmallestType()
+    {
+        DataValue value = createValue(new Random(9), true);
+        ParallelDecoder parallel = new ParallelDecoder(value);
+        assertEquals(ElementType.SHORT, parallel.findType());
+        assertEquals(value.decoder().findType(), parallel.findType());
+
+        int count = (int) parallel.count();
+        ByteBuffer expected = ByteBuffer.allocate(count * 2);
+        assertEquals(count, value.decoder().decode(expected,
+                ElementType.SHORT, 0, count));
+        ByteBuffer actual = ByteBuffer.allocate(count * 2);
+        assertEquals(count, parallel.decode(actual, ElementType.SHORT));
+        assertEquals(expected, actual);
+
+        /* The block is large enough to be decoded in chunks again */
+        DataValue block = DataValue.numbers(ElementType.SHORT, actual);
+        assertTrue(block.size() >= ParallelDecoder.MIN_PARALLEL_SIZE);
+        assertEquals(count, new ParallelDecoder(block).count());
+        int[] expectedInts = new int[count];
+        value.decoder().decode(expectedInts, 0, count);
+        int[] actualInts = new int[count];
+        new ParallelDecoder(block).populateArray(actualInts);
+        assertArrayEquals(expectedInts, actualInts);
+    }
+
+    /*
+     * A value larger than the least size decoded in parallel. The numbers are
+     * mostly zero, so the matrices are sparse, and are whole numbers of two
+     * bytes when asked for.
+     */
+    private static DataValue createValue(Random random, boolean shorts)
+    {
+        /* The block of the shorts is large enough as well */
+        int numbers = ParallelDecoder.MIN_PARALLEL_SIZE / 2 + 1000;
+        StringBuilder text = new StringBuilder();
+        text.append('[');
+        for (int n = 0; shorts ? n < numbers
+                : text.length() < ParallelDecoder.MIN_PARALLEL_SIZE + 1000; n++)
+        {
+            if (shorts)
+                text.append(random.nextInt(65536) - 32768);
+            else if (random.nextInt(4) != 0)
+                text.append('0');
+            else if (random.nextBoolean())
+                text.append(random.nextInt(1000) - 500);
+            else
+                text.append(random.nextDouble() * 100);
+            text.append(random.nextInt(10) == 0 ? ",\n" : ", ");
+        }
+        text.append("0]");
+        return DataValue.text(ByteBuffer.wrap(text.toString().getBytes(
+                StandardCharsets.US_ASCII)));
+    }
+}